@@ -1,9 +1,9 @@
 package com.ffenf.app.ai;
 
-import java.io.File;
 import java.util.Map;
 import java.util.UUID;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,9 +15,11 @@ import org.springframework.web.bind.annotation.RestController;
 import com.ffenf.app.domain.AiJob;
 import com.ffenf.app.domain.CoinTransaction;
 import com.ffenf.app.domain.Material;
+import com.ffenf.app.domain.MaterialContent;
 import com.ffenf.app.domain.User;
 import com.ffenf.app.repo.AiJobRepository;
 import com.ffenf.app.repo.CoinTransactionRepository;
+import com.ffenf.app.repo.MaterialContentRepository;
 import com.ffenf.app.repo.MaterialRepository;
 import com.ffenf.app.repo.UserRepository;
 
@@ -27,19 +29,21 @@ public class AiController {
 
     private final AiJobRepository aiJobs;
     private final MaterialRepository materials;
+    private final MaterialContentRepository materialContents;
     private final UserRepository users;
     private final CoinTransactionRepository coinTransactions;
-    private final AiSummaryService aiSummaryService;
+    private final AiJobWorker aiJobWorker;
     private final OpenAiFileService openAiFileService;
 
-    public AiController(AiJobRepository aiJobs, MaterialRepository materials, 
-                       UserRepository users, CoinTransactionRepository coinTransactions,
-                       AiSummaryService aiSummaryService, OpenAiFileService openAiFileService) {
+    public AiController(AiJobRepository aiJobs, MaterialRepository materials,
+                       MaterialContentRepository materialContents, UserRepository users, CoinTransactionRepository coinTransactions,
+                       AiJobWorker aiJobWorker, OpenAiFileService openAiFileService) {
         this.aiJobs = aiJobs;
         this.materials = materials;
+        this.materialContents = materialContents;
         this.users = users;
         this.coinTransactions = coinTransactions;
-        this.aiSummaryService = aiSummaryService;
+        this.aiJobWorker = aiJobWorker;
         this.openAiFileService = openAiFileService;
     }
 
@@ -193,11 +197,13 @@ public class AiController {
             material.setStorageKey(testFileName);
             material.setFileSize(1024L);
             material.setMimeType("application/pdf");
-            material.setTextExtract("Computer Architecture Fundamentals\n\nThis comprehensive material covers the fundamental concepts of computer architecture including:\n\n1. CPU Design and Organization\n   - Instruction set architecture\n   - Pipeline processing\n   - Branch prediction\n   - Cache memory hierarchy\n\n2. Memory Systems\n   - Primary memory (RAM)\n   - Secondary storage\n   - Virtual memory management\n   - Memory mapping\n\n3. Input/Output Systems\n   - I/O interfaces\n   - Interrupt handling\n   - DMA (Direct Memory Access)\n   - Peripheral devices\n\n4. Performance Optimization\n   - Clock cycles and timing\n   - Performance metrics\n   - Optimization techniques\n   - Benchmarking\n\nThis material provides a solid foundation for understanding how modern computers work at the hardware level.");
             material.setStatus("processed");
             
             try {
                 material = materials.save(material);
+                MaterialContent testContent = new MaterialContent(material.getId());
+                testContent.setTextExtract("Computer Architecture Fundamentals\n\nThis comprehensive material covers the fundamental concepts of computer architecture including:\n\n1. CPU Design and Organization\n   - Instruction set architecture\n   - Pipeline processing\n   - Branch prediction\n   - Cache memory hierarchy\n\n2. Memory Systems\n   - Primary memory (RAM)\n   - Secondary storage\n   - Virtual memory management\n   - Memory mapping\n\n3. Input/Output Systems\n   - I/O interfaces\n   - Interrupt handling\n   - DMA (Direct Memory Access)\n   - Peripheral devices\n\n4. Performance Optimization\n   - Clock cycles and timing\n   - Performance metrics\n   - Optimization techniques\n   - Benchmarking\n\nThis material provides a solid foundation for understanding how modern computers work at the hardware level.");
+                materialContents.save(testContent);
                 System.out.println("TESTING MODE: Created test material with ID: " + materialId + " for user: " + user.getId());
             } catch (Exception e) {
                 System.err.println("Error saving material: " + e.getMessage());
@@ -315,14 +321,15 @@ public class AiController {
             aiJobs.save(job);
             
             // Update material with mock content
+            MaterialContent content = materialContents.findOrNew(material.getId());
             if ("summary".equals(type) || "both".equals(type)) {
-                material.setSummary("This is a test summary of the computer architecture material. It covers CPU design, memory systems, I/O interfaces, and performance optimization techniques.");
+                content.setSummary("This is a test summary of the computer architecture material. It covers CPU design, memory systems, I/O interfaces, and performance optimization techniques.");
             }
             if ("flashcards".equals(type) || "both".equals(type)) {
-                material.setFlashcardsJson("{\"cards\":[{\"front\":\"What is CPU design?\",\"back\":\"CPU design involves instruction set architecture, pipeline processing, and cache memory hierarchy.\"},{\"front\":\"What are memory systems?\",\"back\":\"Memory systems include primary memory (RAM), secondary storage, virtual memory management, and memory mapping.\"}]}");
+                content.setFlashcardsJson("{\"cards\":[{\"front\":\"What is CPU design?\",\"back\":\"CPU design involves instruction set architecture, pipeline processing, and cache memory hierarchy.\"},{\"front\":\"What are memory systems?\",\"back\":\"Memory systems include primary memory (RAM), secondary storage, virtual memory management, and memory mapping.\"}]}");
             }
             try {
-                materials.save(material);
+                materialContents.save(content);
                 System.out.println("Updated material with mock content");
             } catch (Exception e) {
                 System.err.println("Error updating material with mock content: " + e.getMessage());
@@ -333,24 +340,20 @@ public class AiController {
                 "message", "AI generation completed successfully!",
                 "jobId", job.getId().toString(),
                 "status", "completed",
-                "summary", material.getSummary() != null ? material.getSummary() : "",
-                "flashcards", material.getFlashcardsJson() != null ? material.getFlashcardsJson() : ""
+                "summary", content.getSummary() != null ? content.getSummary() : "",
+                "flashcards", content.getFlashcardsJson() != null ? content.getFlashcardsJson() : ""
             ));
         }
         
-        // Simulate AI processing (in production, this would be async)
-        simulateAiProcessing(job, material);
+        // Hand the job to the background worker; clients poll /ai/job/{jobId} for the result
+        aiJobWorker.wakeUp();
 
-        // Get the updated material with generated content
-        Material updatedMaterial = materials.findById(materialId).orElse(material);
-        
-        return ResponseEntity.ok(Map.of(
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
             "jobId", job.getId(),
             "status", job.getStatus(),
+            "statusUrl", "/ai/job/" + job.getId(),
             "coinsSpent", cost,
-            "remainingCoins", users.findById(userById.getId()).map(User::getCoins).orElse(newBalance),
-            "summary", updatedMaterial.getSummary() != null ? updatedMaterial.getSummary() : "",
-            "flashcards", updatedMaterial.getFlashcardsJson() != null ? updatedMaterial.getFlashcardsJson() : ""
+            "remainingCoins", newBalance
         ));
         
         } catch (Exception e) {
@@ -398,13 +401,14 @@ public class AiController {
             return ResponseEntity.status(403).body(Map.of("error", "Access denied"));
         }
 
+        MaterialContent content = materialContents.findOrNew(materialId);
         return ResponseEntity.ok(Map.of(
             "materialId", material.getId(),
             "title", material.getTitle(),
-            "summary", material.getSummary() != null ? material.getSummary() : "",
-            "flashcards", material.getFlashcardsJson() != null ? material.getFlashcardsJson() : "",
-            "hasSummary", material.getSummary() != null && !material.getSummary().isEmpty(),
-            "hasFlashcards", material.getFlashcardsJson() != null && !material.getFlashcardsJson().isEmpty()
+            "summary", content.getSummary() != null ? content.getSummary() : "",
+            "flashcards", content.getFlashcardsJson() != null ? content.getFlashcardsJson() : "",
+            "hasSummary", content.getSummary() != null && !content.getSummary().isEmpty(),
+            "hasFlashcards", content.getFlashcardsJson() != null && !content.getFlashcardsJson().isEmpty()
         ));
     }
 
@@ -414,90 +418,4 @@ public class AiController {
         return true;
     }
 
-    private void simulateAiProcessing(AiJob job, Material material) {
-        // Process AI generation using OpenAI file API
-        try {
-            job.setStatus("running");
-            aiJobs.save(job);
-
-            // Get OpenAI file ID from material (stored during upload)
-            String openaiFileId = material.getTextExtract();
-            
-            // If no OpenAI file ID, try to upload the file first
-            if (openaiFileId == null || openaiFileId.trim().isEmpty()) {
-                System.out.println("No OpenAI file ID found, attempting to upload file...");
-                
-                // Get the file path from storage key
-                String storageKey = material.getStorageKey();
-                if (storageKey == null || storageKey.isEmpty()) {
-                    throw new RuntimeException("No storage key available for material");
-                }
-
-                // Construct file path
-                String filePath = "./uploads/" + storageKey;
-                File file = new File(filePath);
-                
-                if (!file.exists()) {
-                    System.err.println("PDF file does not exist: " + filePath);
-                    System.err.println("TESTING MODE: Using mock content instead of real file processing");
-                    // Set mock content instead of failing
-                    job.setStatus("completed");
-                    job.setError(null);
-                    aiJobs.save(job);
-                    
-                    // Update material with mock content
-                    if ("summary".equals(job.getType()) || "both".equals(job.getType())) {
-                        material.setSummary("This is a test summary of the material generated for testing purposes. It covers the key concepts and main topics discussed in the document.");
-                    }
-                    if ("flashcards".equals(job.getType()) || "both".equals(job.getType())) {
-                        material.setFlashcardsJson("{\"cards\":[{\"front\":\"What is the main topic?\",\"back\":\"The main topic covers fundamental concepts and detailed explanations.\"},{\"front\":\"Key concepts include?\",\"back\":\"Key concepts include implementation details, practical examples, and theoretical foundations.\"}]}");
-                    }
-                    materials.save(material);
-                    return; // Exit early with mock content
-                }
-
-                try {
-                    // Upload file to OpenAI
-                    openaiFileId = openAiFileService.uploadPdfToOpenAI(file);
-                    System.out.println("Successfully uploaded file to OpenAI with ID: " + openaiFileId);
-                    
-                    // Update material with the OpenAI file ID
-                    material.setTextExtract(openaiFileId);
-                    materials.save(material);
-                    
-                } catch (Exception e) {
-                    System.err.println("Failed to upload file to OpenAI: " + e.getMessage());
-                    throw new RuntimeException("Failed to upload file to OpenAI: " + e.getMessage());
-                }
-            } else {
-                System.out.println("Using existing OpenAI file ID: " + openaiFileId);
-            }
-
-            // Generate content based on type using OpenAI file API
-            if ("summary".equals(job.getType()) || "both".equals(job.getType())) {
-                String summary = aiSummaryService.generateSummaryFromFile(openaiFileId);
-                material.setSummary(summary);
-                System.out.println("Generated summary length: " + (summary != null ? summary.length() : "null"));
-                System.out.println("Generated summary (first 200 chars): " + (summary != null ? summary.substring(0, Math.min(200, summary.length())) + "..." : "null"));
-            }
-            
-            if ("flashcards".equals(job.getType()) || "both".equals(job.getType())) {
-                String flashcards = aiSummaryService.generateFlashcardsFromFile(openaiFileId);
-                material.setFlashcardsJson(flashcards);
-                System.out.println("Generated flashcards: " + (flashcards != null ? flashcards.substring(0, Math.min(100, flashcards.length())) + "..." : "null"));
-            }
-
-            materials.save(material);
-            job.setStatus("completed");
-            aiJobs.save(job);
-
-        } catch (Exception e) {
-            System.err.println("Error in AI processing: " + e.getMessage());
-            e.printStackTrace();
-            job.setStatus("failed");
-            job.setError(e.getMessage());
-            aiJobs.save(job);
-        }
-    }
-
 }
@@ -0,0 +1,105 @@
+package com.ffenf.app.ai;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ffenf.app.domain.AiJob;
+import com.ffenf.app.repo.AiJobRepository;
+import com.ffenf.app.worker.LeasedDispatcher;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Background engine for AI generation jobs.
+ *
+ * Jobs are persisted as "queued" by the controller; this worker claims them with a
+ * conditional status update (so only one dispatcher ever runs a given job) and executes
+ * them on virtual threads, bounded by a fixed number of concurrent slots so a burst of
+ * generations cannot pile up unbounded OpenAI runs.
+ *
+ * A claim is a lease: while a job runs its updated_at is renewed every heartbeat-interval-ms,
+ * and only jobs whose lease lapsed for stale-after-ms (crashed or redeployed instance) are
+ * requeued. Each claim counts as an attempt; after max-attempts a lapsed job is failed.
+ */
+@Component
+public class AiJobWorker {
+
+    private final AiJobRepository aiJobs;
+    private final LeasedDispatcher<UUID> dispatcher;
+    private final long staleAfterMs;
+    private final int maxAttempts;
+
+    public AiJobWorker(AiJobRepository aiJobs, AiJobProcessor processor,
+                       @Value("${app.ai.worker.concurrency:4}") int concurrency,
+                       @Value("${app.ai.worker.stale-after-ms:900000}") long staleAfterMs,
+                       @Value("${app.ai.worker.max-attempts:3}") int maxAttempts) {
+        this.aiJobs = aiJobs;
+        this.staleAfterMs = staleAfterMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.dispatcher = new LeasedDispatcher<>("ai-job", concurrency, new LeasedDispatcher.WorkSource<>() {
+            @Override
+            public List<UUID> findCandidates(int limit) {
+                return aiJobs.findByStatusOrderByCreatedAtAsc("queued", PageRequest.of(0, limit)).stream()
+                        .map(AiJob::getId)
+                        .toList();
+            }
+
+            @Override
+            public boolean claim(UUID id) {
+                return aiJobs.claimQueuedJob(id, Instant.now()) > 0;
+            }
+
+            @Override
+            public void renewLeases(Set<UUID> ids) {
+                aiJobs.renewLeases(ids, Instant.now());
+            }
+        }, processor::process);
+    }
+
+    /**
+     * Nudge the dispatcher right after a job is queued instead of waiting for the next poll.
+     */
+    public void wakeUp() {
+        dispatcher.wakeUp();
+    }
+
+    @Scheduled(fixedDelayString = "${app.ai.worker.poll-interval-ms:2000}")
+    public void poll() {
+        dispatcher.dispatch();
+    }
+
+    @Scheduled(fixedDelayString = "${app.ai.worker.heartbeat-interval-ms:60000}")
+    public void renewLeases() {
+        dispatcher.renewLeases();
+    }
+
+    /**
+     * Jobs whose lease lapsed (crashed or redeployed instance) are put back in the queue, or
+     * failed once they have used up their attempts.
+     */
+    @Scheduled(fixedDelayString = "${app.ai.worker.stale-check-interval-ms:60000}")
+    public void requeueStaleJobs() {
+        try {
+            Instant before = Instant.now().minusMillis(staleAfterMs);
+            int failed = aiJobs.failStaleJobs(before, maxAttempts);
+            int requeued = aiJobs.requeueStaleJobs(before, maxAttempts);
+            if (failed > 0 || requeued > 0) {
+                System.out.println("AI worker requeued " + requeued + " and failed " + failed + " stale running job(s)");
+            }
+        } catch (Exception e) {
+            System.err.println("AI worker failed to requeue stale jobs: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+}
@@ -1,232 +1,257 @@
 package com.ffenf.app.ai;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ffenf.app.config.OpenAiConfig;
 
 @Service
 public class AiSummaryService {
 
-    private final HttpClient httpClient;
+    private static final String SUMMARY_PROMPT = """
+            Please provide a comprehensive and detailed summary of %s. Your summary should:
+            
+            1. **Structure**: Organize the content into clear sections with headings
+            2. **Completeness**: Cover all major topics, concepts, and important details
+            3. **Accuracy**: Maintain factual accuracy and preserve key information
+            4. **Clarity**: Use clear, concise language that's easy to understand
+            5. **Key Points**: Highlight important definitions, formulas, examples, and conclusions
+            6. **Context**: Provide context for technical terms and concepts
+            
+            Format your response as a well-structured summary with:
+            - A brief overview/introduction
+            - Main topics organized by sections
+            - Key concepts and definitions
+            - Important examples or case studies
+            - Conclusions or main takeaways
+            
+            Make sure to capture the full depth and breadth of the content while maintaining readability.
+            """;
+
+    private static final String FLASHCARDS_PROMPT = """
+            Please create high-quality flashcards for %s in JSON format. Generate 8-12 flashcards with 'front' and 'back' fields. 
+            
+            Requirements:
+            1. **Coverage**: Focus on key concepts, definitions, formulas, important facts, and critical information
+            2. **Difficulty**: Mix easy recall questions with more complex analytical questions
+            3. **Format**: Use clear, concise language for both front and back
+            4. **Structure**: Return valid JSON with this exact format:
+            {
+              "cards": [
+                {
+                  "front": "Question or term here",
+                  "back": "Answer or definition here"
+                }
+              ]
+            }
+            
+            Make sure the flashcards are educational, accurate, and help with learning the material effectively.
+            """;
+
+    private static final String COMBINED_PROMPT = """
+            Please study %s and produce BOTH a detailed summary and a set of flashcards.
+
+            Summary requirements:
+            1. **Structure**: Organize the content into clear sections with headings (Markdown)
+            2. **Completeness**: Cover all major topics, concepts, and important details
+            3. **Accuracy**: Maintain factual accuracy and preserve key information
+            4. **Key Points**: Highlight important definitions, formulas, examples, and conclusions
+            Include a brief overview, main topics by section, key concepts and definitions,
+            important examples, and the main takeaways.
+
+            Flashcard requirements:
+            - Generate 8-12 flashcards focused on key concepts, definitions, formulas and critical facts
+            - Mix easy recall questions with more complex analytical questions
+            - Use clear, concise language for both front and back
+
+            Respond with ONLY a single valid JSON object, no code fences and no text around it,
+            in exactly this format:
+            {
+              "summary": "The full Markdown summary as one JSON string",
+              "cards": [
+                {
+                  "front": "Question or term here",
+                  "back": "Answer or definition here"
+                }
+              ]
+            }
+            """;
+
+    // What the prompts above call the material: the attached file, or the text sent after the prompt
+    private static final String FILE_DOCUMENT = "this PDF document";
+    private static final String TEXT_DOCUMENT = "the document below";
+
+    private static final String CHUNK_NOTES_PROMPT = """
+            This is part %d of %d of the extracted text of a PDF document. Write dense study notes
+            that keep every concept, definition, formula, example and important fact from this part.
+            Respond with the notes only, without an introduction or closing remarks.
+            """;
+
+    // Chunk requests in flight at once per document when text is too long for one request
+    private static final int MAX_PARALLEL_CHUNKS = 4;
+
+    private final OpenAiClient openAiClient;
     private final ObjectMapper objectMapper;
     private final OpenAiConfig openAiConfig;
+    private final AssistantRegistry assistantRegistry;
+    private final RunCompletionWaiter runCompletionWaiter;
 
     @Autowired
-    public AiSummaryService(OpenAiConfig openAiConfig) {
+    public AiSummaryService(OpenAiConfig openAiConfig, OpenAiClient openAiClient,
+                            AssistantRegistry assistantRegistry, RunCompletionWaiter runCompletionWaiter) {
         this.openAiConfig = openAiConfig;
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(60))
-                .build();
-        this.objectMapper = new ObjectMapper();
+        this.openAiClient = openAiClient;
+        this.assistantRegistry = assistantRegistry;
+        this.runCompletionWaiter = runCompletionWaiter;
+        this.objectMapper = openAiClient.objectMapper();
     }
 
 
     /**
-     * Generate summary using OpenAI Assistants API
+     * Generate summary using OpenAI Assistants API.
+     * Failures are thrown, so callers never mistake an error for generated content.
      */
     public String generateSummaryFromFile(String fileId) {
-        System.out.println("Generating summary from OpenAI file ID: " + fileId);
-        
-        if (!openAiConfig.isConfigured()) {
-            return "OpenAI API key not configured. Please set OPENAI_API_KEY environment variable.";
-        }
-        
-        String apiKey = openAiConfig.getKey();
-        
-        try {
-            // Step 1: Create an assistant with enhanced instructions
-            String assistantId = createAssistant(apiKey);
-            System.out.println("Created assistant with ID: " + assistantId);
-            
-            // Step 2: Create a thread
-            String threadId = createThread(apiKey);
-            System.out.println("Created thread with ID: " + threadId);
-            
-            // Step 3: Add message with file attachment and enhanced prompt
-            String enhancedPrompt = """
-                Please provide a comprehensive and detailed summary of this PDF document. Your summary should:
-                
-                1. **Structure**: Organize the content into clear sections with headings
-                2. **Completeness**: Cover all major topics, concepts, and important details
-                3. **Accuracy**: Maintain factual accuracy and preserve key information
-                4. **Clarity**: Use clear, concise language that's easy to understand
-                5. **Key Points**: Highlight important definitions, formulas, examples, and conclusions
-                6. **Context**: Provide context for technical terms and concepts
-                
-                Format your response as a well-structured summary with:
-                - A brief overview/introduction
-                - Main topics organized by sections
-                - Key concepts and definitions
-                - Important examples or case studies
-                - Conclusions or main takeaways
-                
-                Make sure to capture the full depth and breadth of the content while maintaining readability.
-                """;
-            
-            addMessageToThread(apiKey, threadId, fileId, enhancedPrompt);
-            
-            // Step 4: Run the assistant
-            String runId = runAssistant(apiKey, threadId, assistantId);
-            System.out.println("Started run with ID: " + runId);
-            
-            // Step 5: Wait for completion and get response with proper polling
-            String summary = waitForCompletionAndGetResponse(apiKey, threadId, runId);
-            
-            // Step 6: Clean up - delete assistant
-            deleteAssistant(apiKey, assistantId);
-            
-            return summary;
-            
-        } catch (Exception e) {
-            System.err.println("OpenAI Assistants API Error: " + e.getMessage());
-            e.printStackTrace();
-            return "Unable to generate summary at this time. Error: " + e.getMessage();
-        }
+        requireConfigured();
+
+        // Thread, message and run are chained asynchronously; only the caller waits
+        return await(runPrompt(fileId, SUMMARY_PROMPT.formatted(FILE_DOCUMENT), AssistantProfile.SUMMARY));
     }
 
     /**
      * Generate flashcards using OpenAI Assistants API
      */
     public String generateFlashcardsFromFile(String fileId) {
-        System.out.println("Generating flashcards from OpenAI file ID: " + fileId);
-        
-        if (!openAiConfig.isConfigured()) {
-            return "{\"cards\":[{\"front\":\"OpenAI API key not configured\",\"back\":\"Please set OPENAI_API_KEY environment variable.\"}]}";
+        requireConfigured();
+
+        // Thread, message and run are chained asynchronously; only the caller waits
+        return await(runPrompt(fileId, FLASHCARDS_PROMPT.formatted(FILE_DOCUMENT), AssistantProfile.FLASHCARDS));
+    }
+
+    /**
+     * Summary and flashcards produced by a single combined run.
+     */
+    public record GeneratedContent(String summary, String flashcardsJson) {}
+
+    /**
+     * Generate summary and flashcards together in one Assistants API run.
+     * If part of the combined answer cannot be parsed, only that part is generated again separately.
+     */
+    public GeneratedContent generateSummaryAndFlashcardsFromFile(String fileId) {
+        requireConfigured();
+
+        // Ask for both outputs as one JSON document
+        String response = await(runPrompt(fileId, COMBINED_PROMPT.formatted(FILE_DOCUMENT), AssistantProfile.SUMMARY));
+
+        GeneratedContent content = parseCombinedResponse(response);
+        String summary = content != null ? content.summary() : null;
+        String flashcardsJson = content != null ? content.flashcardsJson() : null;
+        if (summary == null) {
+            System.err.println("Combined response had no usable summary, generating it separately");
+            summary = generateSummaryFromFile(fileId);
         }
-        
-        String apiKey = openAiConfig.getKey();
-        
-        try {
-            // Step 1: Create an assistant
-            String assistantId = createAssistant(apiKey);
-            System.out.println("Created assistant with ID: " + assistantId);
-            
-            // Step 2: Create a thread
-            String threadId = createThread(apiKey);
-            System.out.println("Created thread with ID: " + threadId);
-            
-            // Step 3: Add message with file attachment and enhanced prompt
-            String enhancedPrompt = """
-                Please create high-quality flashcards for this PDF document in JSON format. Generate 8-12 flashcards with 'front' and 'back' fields. 
-                
-                Requirements:
-                1. **Coverage**: Focus on key concepts, definitions, formulas, important facts, and critical information
-                2. **Difficulty**: Mix easy recall questions with more complex analytical questions
-                3. **Format**: Use clear, concise language for both front and back
-                4. **Structure**: Return valid JSON with this exact format:
-                {
-                  "cards": [
-                    {
-                      "front": "Question or term here",
-                      "back": "Answer or definition here"
-                    }
-                  ]
-                }
-                
-                Make sure the flashcards are educational, accurate, and help with learning the material effectively.
-                """;
-            
-            addMessageToThread(apiKey, threadId, fileId, enhancedPrompt);
-            
-            // Step 4: Run the assistant
-            String runId = runAssistant(apiKey, threadId, assistantId);
-            System.out.println("Started run with ID: " + runId);
-            
-            // Step 5: Wait for completion and get response with proper polling
-            String flashcards = waitForCompletionAndGetResponse(apiKey, threadId, runId);
-            
-            // Step 6: Clean up - delete assistant
-            deleteAssistant(apiKey, assistantId);
-            
-            return flashcards;
-            
-        } catch (Exception e) {
-            System.err.println("OpenAI Assistants API Error: " + e.getMessage());
-            e.printStackTrace();
-            return "{\"cards\":[{\"front\":\"Unable to generate flashcards\",\"back\":\"Please try again later. Error: " + e.getMessage() + "\"}]}";
+        if (flashcardsJson == null) {
+            System.err.println("Combined response had no usable flashcards, generating them separately");
+            flashcardsJson = generateFlashcardsFromFile(fileId);
         }
+        return new GeneratedContent(summary, flashcardsJson);
     }
 
-    private String createAssistant(String apiKey) throws Exception {
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("model", "gpt-4o");
-        requestBody.put("name", "Educational Content Processor");
-        requestBody.put("instructions", """
-            You are an expert educational content processor specializing in creating comprehensive summaries and flashcards from academic materials. 
-            
-            Your capabilities include:
-            - Analyzing complex academic content with precision
-            - Creating structured, well-organized summaries
-            - Generating educational flashcards that promote effective learning
-            - Maintaining accuracy while improving readability
-            - Identifying key concepts, definitions, and important details
-            
-            Always prioritize accuracy, completeness, and educational value in your responses.
-            """);
-        requestBody.put("tools", new Object[]{Map.of("type", "file_search")});
-
-        String jsonBody = objectMapper.writeValueAsString(requestBody);
+    /**
+     * Generate summary from extracted text using chat/completions (no file upload or assistant run).
+     */
+    public String generateSummaryFromText(String text) {
+        return await(completeOverText(text, SUMMARY_PROMPT.formatted(TEXT_DOCUMENT), AssistantProfile.SUMMARY));
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.openai.com/v1/assistants"))
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + apiKey)
-                .header("OpenAI-Beta", "assistants=v2")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                .build();
+    /**
+     * Generate flashcards from extracted text using chat/completions.
+     */
+    public String generateFlashcardsFromText(String text) {
+        return await(completeOverText(text, FLASHCARDS_PROMPT.formatted(TEXT_DOCUMENT), AssistantProfile.FLASHCARDS));
+    }
 
-        HttpResponse<String> response;
-        try {
-            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Request interrupted", e);
+    /**
+     * Generate summary and flashcards together from extracted text.
+     * If part of the combined answer cannot be parsed, only that part is requested again, over the
+     * same document text or condensed notes, so long documents are not condensed a second time.
+     */
+    public GeneratedContent generateSummaryAndFlashcardsFromText(String text) {
+        String document = await(documentForChat(text, AssistantProfile.SUMMARY));
+        String response = await(chat(AssistantProfile.SUMMARY, COMBINED_PROMPT.formatted(TEXT_DOCUMENT) + document));
+
+        GeneratedContent content = parseCombinedResponse(response);
+        String summary = content != null ? content.summary() : null;
+        String flashcardsJson = content != null ? content.flashcardsJson() : null;
+        if (summary == null) {
+            System.err.println("Combined response had no usable summary, requesting it separately");
+            summary = await(chat(AssistantProfile.SUMMARY, SUMMARY_PROMPT.formatted(TEXT_DOCUMENT) + document));
         }
-
-        if (response.statusCode() == 200) {
-            Map<String, Object> result = objectMapper.readValue(response.body(), Map.class);
-            return (String) result.get("id");
-        } else {
-            throw new RuntimeException("Failed to create assistant: " + response.body());
+        if (flashcardsJson == null) {
+            System.err.println("Combined response had no usable flashcards, requesting them separately");
+            flashcardsJson = await(chat(AssistantProfile.FLASHCARDS, FLASHCARDS_PROMPT.formatted(TEXT_DOCUMENT) + document));
         }
+        return new GeneratedContent(summary, flashcardsJson);
     }
 
-    private String createThread(String apiKey) throws Exception {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.openai.com/v1/threads"))
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + apiKey)
-                .header("OpenAI-Beta", "assistants=v2")
-                .POST(HttpRequest.BodyPublishers.ofString("{}"))
-                .build();
-
-        HttpResponse<String> response;
+    /**
+     * Split a combined {"summary": ..., "cards": [...]} answer into the two stored formats.
+     * A part that is missing or has the wrong type comes back null; returns null when the answer
+     * is not a JSON object at all.
+     */
+    GeneratedContent parseCombinedResponse(String response) {
+        if (response == null) {
+            return null;
+        }
+        // Models occasionally wrap JSON in code fences or add a sentence around it
+        int start = response.indexOf('{');
+        int end = response.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            return null;
+        }
         try {
-            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Request interrupted", e);
+            JsonNode root = objectMapper.readTree(response.substring(start, end + 1));
+            JsonNode summary = root.get("summary");
+            JsonNode cards = root.get("cards");
+            String summaryText = summary != null && summary.isTextual() && !summary.asText().isBlank() ? summary.asText() : null;
+            String flashcardsJson = cards != null && cards.isArray() ? objectMapper.writeValueAsString(Map.of("cards", cards)) : null;
+            if (summaryText == null && flashcardsJson == null) {
+                return null;
+            }
+            return new GeneratedContent(summaryText, flashcardsJson);
+        } catch (Exception e) {
+            System.err.println("Failed to parse combined response: " + e.getMessage());
+            return null;
         }
+    }
 
-        if (response.statusCode() == 200) {
-            Map<String, Object> result = objectMapper.readValue(response.body(), Map.class);
-            return (String) result.get("id");
-        } else {
-            throw new RuntimeException("Failed to create thread: " + response.body());
-        }
+    /**
+     * Thread -> message -> run -> reply, composed without blocking between steps.
+     */
+    private CompletableFuture<String> runPrompt(String fileId, String prompt, AssistantProfile profile) {
+        return createThread()
+            .thenCompose(threadId -> {
+                return addMessageToThread(threadId, fileId, prompt)
+                    .thenCompose(ignored -> executeRun(threadId, profile));
+            });
     }
 
-    private void addMessageToThread(String apiKey, String threadId, String fileId, String message) throws Exception {
+    private CompletableFuture<String> createThread() {
+        return openAiClient.postJson(OpenAiClient.Endpoint.THREADS, "/threads", Map.of())
+            .thenApply(result -> result.path("id").asText());
+    }
+
+    private CompletableFuture<Void> addMessageToThread(String threadId, String fileId, String message) {
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("role", "user");
         requestBody.put("content", message);
@@ -234,200 +259,168 @@ public class AiSummaryService {
             Map.of("file_id", fileId, "tools", new Object[]{Map.of("type", "file_search")})
         });
 
-        String jsonBody = objectMapper.writeValueAsString(requestBody);
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.openai.com/v1/threads/" + threadId + "/messages"))
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + apiKey)
-                .header("OpenAI-Beta", "assistants=v2")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                .build();
+        return openAiClient.postJson(OpenAiClient.Endpoint.MESSAGES, "/threads/" + threadId + "/messages", requestBody)
+            .thenApply(ignored -> null);
+    }
 
-        HttpResponse<String> response;
-        try {
-            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Request interrupted", e);
+    /**
+     * Run the profile's assistant on a thread and return its reply, streamed or polled per config.
+     */
+    private CompletableFuture<String> executeRun(String threadId, AssistantProfile profile) {
+        if (openAiConfig.isStreamRuns()) {
+            return withAssistant(profile,
+                assistantId -> runCompletionWaiter.streamRun(threadId, assistantId, profile));
         }
 
-        if (response.statusCode() != 200) {
-            throw new RuntimeException("Failed to add message to thread: " + response.body());
-        }
+        return withAssistant(profile, assistantId -> runAssistant(threadId, assistantId))
+            .thenCompose(runId -> {
+                return runCompletionWaiter.awaitCompletion(threadId, runId, profile);
+            })
+            .thenCompose(ignored -> getAssistantResponse(threadId));
     }
 
-    private String runAssistant(String apiKey, String threadId, String assistantId) throws Exception {
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("assistant_id", assistantId);
+    /**
+     * Call OpenAI with the registry's assistant, recreating it once if OpenAI reports that
+     * assistant gone. Other 404s (thread, message, file) fail the call as usual.
+     */
+    private <T> CompletableFuture<T> withAssistant(AssistantProfile profile,
+                                                   Function<String, CompletableFuture<T>> call) {
+        return assistantRegistry.getAssistantIdAsync(profile)
+            .thenCompose(assistantId -> call.apply(assistantId)
+                .handle((result, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    if (!OpenAiApiException.isAssistantNotFound(error, assistantId)) {
+                        return CompletableFuture.<T>failedFuture(error);
+                    }
+                    System.err.println("Assistant " + assistantId + " no longer exists, recreating");
+                    assistantRegistry.invalidate(profile, assistantId);
+                    return assistantRegistry.getAssistantIdAsync(profile).thenCompose(call);
+                })
+                .thenCompose(Function.identity()));
+    }
 
-        String jsonBody = objectMapper.writeValueAsString(requestBody);
+    private CompletableFuture<String> runAssistant(String threadId, String assistantId) {
+        return openAiClient.postJson(OpenAiClient.Endpoint.RUNS, "/threads/" + threadId + "/runs",
+                Map.of("assistant_id", assistantId))
+            .thenApply(result -> result.path("id").asText());
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.openai.com/v1/threads/" + threadId + "/runs"))
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + apiKey)
-                .header("OpenAI-Beta", "assistants=v2")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                .build();
+    private CompletableFuture<String> getAssistantResponse(String threadId) {
+        // Messages come newest first, so the first assistant text is the reply to this run
+        return openAiClient.getJson(OpenAiClient.Endpoint.MESSAGES, "/threads/" + threadId + "/messages")
+            .thenApply(result -> {
+                for (JsonNode message : result.path("data")) {
+                    if (!"assistant".equals(message.path("role").asText())) {
+                        continue;
+                    }
+                    JsonNode content = message.path("content");
+                    if (content.size() > 0 && "text".equals(content.get(0).path("type").asText())) {
+                        return content.get(0).path("text").path("value").asText();
+                    }
+                }
+                throw new RuntimeException("Failed to get response from assistant");
+            });
+    }
 
-        HttpResponse<String> response;
-        try {
-            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Request interrupted", e);
+    /**
+     * Answer a prompt over the document text. Text that fits in openai.api.chunk-chars goes in
+     * one request; longer text is first condensed chunk by chunk (map) and the prompt is then
+     * answered over the combined notes (reduce).
+     */
+    private CompletableFuture<String> completeOverText(String text, String prompt, AssistantProfile profile) {
+        return documentForChat(text, profile).thenCompose(document -> chat(profile, prompt + document));
+    }
+
+    /**
+     * The document part of a chat prompt: the text itself, or condensed notes when it is too long
+     * for one request. Prompts are appended in front of it.
+     */
+    private CompletableFuture<String> documentForChat(String text, AssistantProfile profile) {
+        List<String> chunks = chunkText(text, openAiConfig.getChunkChars());
+        if (chunks.size() <= 1) {
+            return CompletableFuture.completedFuture("\nDocument text:\n" + text);
         }
 
-        if (response.statusCode() == 200) {
-            Map<String, Object> result = objectMapper.readValue(response.body(), Map.class);
-            return (String) result.get("id");
-        } else {
-            throw new RuntimeException("Failed to run assistant: " + response.body());
+        int count = chunks.size();
+        String[] notes = new String[count];
+        int lanes = Math.min(MAX_PARALLEL_CHUNKS, count);
+        CompletableFuture<?>[] laneFutures = new CompletableFuture<?>[lanes];
+        for (int lane = 0; lane < lanes; lane++) {
+            CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+            for (int i = lane; i < count; i += lanes) {
+                int index = i;
+                chain = chain.thenCompose(ignored ->
+                    chat(profile, CHUNK_NOTES_PROMPT.formatted(index + 1, count) + "\n" + chunks.get(index))
+                        .thenAccept(result -> notes[index] = result));
+            }
+            laneFutures[lane] = chain;
         }
+
+        return CompletableFuture.allOf(laneFutures)
+            .thenApply(ignored -> "\nDocument notes (condensed from " + count + " consecutive parts):\n"
+                + String.join("\n\n", notes));
     }
 
-    private String waitForCompletionAndGetResponse(String apiKey, String threadId, String runId) throws Exception {
-        // Poll for completion with proper timeout handling
-        int maxAttempts = 30; // 5 minutes max (30 * 10 seconds)
-        int attempt = 0;
-        
-        while (attempt < maxAttempts) {
-            // Check run status
-            HttpRequest statusRequest = HttpRequest.newBuilder()
-                    .uri(URI.create("https://api.openai.com/v1/threads/" + threadId + "/runs/" + runId))
-                    .header("Authorization", "Bearer " + apiKey)
-                    .header("OpenAI-Beta", "assistants=v2")
-                    .GET()
-                    .build();
-
-            HttpResponse<String> statusResponse;
-            try {
-                statusResponse = httpClient.send(statusRequest, HttpResponse.BodyHandlers.ofString());
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("Request interrupted", e);
-            }
+    private CompletableFuture<String> chat(AssistantProfile profile, String userContent) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", openAiConfig.getChatModel());
+        requestBody.put("messages", List.of(
+            Map.of("role", "system", "content", profile.getInstructions()),
+            Map.of("role", "user", "content", userContent)
+        ));
+
+        return openAiClient.postJson(OpenAiClient.Endpoint.CHAT, "/chat/completions", requestBody)
+            .thenApply(result -> {
+                String content = result.path("choices").path(0).path("message").path("content").asText(null);
+                if (content == null || content.isBlank()) {
+                    throw new RuntimeException("Empty chat completion response");
+                }
+                return content;
+            });
+    }
 
-            if (statusResponse.statusCode() == 200) {
-                Map<String, Object> statusResult = objectMapper.readValue(statusResponse.body(), Map.class);
-                String status = (String) statusResult.get("status");
-                
-                System.out.println("Run status: " + status + " (attempt " + (attempt + 1) + ")");
-                
-                if ("completed".equals(status)) {
-                    break;
-                } else if ("failed".equals(status) || "cancelled".equals(status) || "expired".equals(status)) {
-                    String error = (String) statusResult.get("last_error");
-                    throw new RuntimeException("Run failed with status: " + status + ", error: " + error);
+    /**
+     * Split text into pieces of at most maxChars, preferring to break at whitespace.
+     */
+    static List<String> chunkText(String text, int maxChars) {
+        List<String> chunks = new ArrayList<>();
+        int limit = Math.max(1000, maxChars);
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(text.length(), start + limit);
+            if (end < text.length()) {
+                int space = text.lastIndexOf(' ', end);
+                if (space > start + limit / 2) {
+                    end = space;
                 }
-                
-                // Wait before next poll
-                Thread.sleep(10000); // 10 seconds
-                attempt++;
-            } else {
-                throw new RuntimeException("Failed to check run status: " + statusResponse.body());
             }
+            String chunk = text.substring(start, end).trim();
+            if (!chunk.isEmpty()) {
+                chunks.add(chunk);
+            }
+            start = end;
         }
-        
-        if (attempt >= maxAttempts) {
-            throw new RuntimeException("Run did not complete within timeout period");
-        }
-        
-        // Get messages from thread
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.openai.com/v1/threads/" + threadId + "/messages"))
-                .header("Authorization", "Bearer " + apiKey)
-                .header("OpenAI-Beta", "assistants=v2")
-                .GET()
-                .build();
-
-        HttpResponse<String> response;
-        try {
-            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Request interrupted", e);
-        }
+        return chunks;
+    }
 
-        if (response.statusCode() == 200) {
-            Map<String, Object> result = objectMapper.readValue(response.body(), Map.class);
-            Object dataObj = result.get("data");
-            
-            // Debug logging to understand response structure
-            System.out.println("Response data type: " + (dataObj != null ? dataObj.getClass().getSimpleName() : "null"));
-            
-            // Handle both ArrayList and Object[] cases
-            Object[] data;
-            if (dataObj instanceof java.util.List) {
-                java.util.List<?> dataList = (java.util.List<?>) dataObj;
-                data = dataList.toArray();
-            } else {
-                data = (Object[]) dataObj;
-            }
-            
-            // Find the assistant's response
-            for (Object messageObj : data) {
-                Map<String, Object> message = (Map<String, Object>) messageObj;
-                if ("assistant".equals(message.get("role"))) {
-                    Object contentObj = message.get("content");
-                    System.out.println("Content object type: " + (contentObj != null ? contentObj.getClass().getSimpleName() : "null"));
-                    
-                    // Handle both ArrayList and Object[] cases for content
-                    Object[] content;
-                    if (contentObj instanceof java.util.List) {
-                        java.util.List<?> contentList = (java.util.List<?>) contentObj;
-                        content = contentList.toArray();
-                    } else {
-                        content = (Object[]) contentObj;
-                    }
-                    
-                    if (content.length > 0) {
-                        Map<String, Object> contentItem = (Map<String, Object>) content[0];
-                        if ("text".equals(contentItem.get("type"))) {
-                            Object textObj = contentItem.get("text");
-                            if (textObj instanceof Map) {
-                                Map<String, Object> text = (Map<String, Object>) textObj;
-                                Object valueObj = text.get("value");
-                                if (valueObj instanceof String) {
-                                    return (String) valueObj;
-                                } else {
-                                    System.err.println("Expected String value but got: " + valueObj.getClass().getSimpleName());
-                                    return valueObj.toString();
-                                }
-                            } else {
-                                System.err.println("Expected Map for text but got: " + textObj.getClass().getSimpleName());
-                                return textObj.toString();
-                            }
-                        }
-                    }
-                }
-            }
+    private void requireConfigured() {
+        if (!openAiConfig.isConfigured()) {
+            throw new IllegalStateException("OpenAI API key not configured. Please set OPENAI_API_KEY environment variable.");
         }
-        
-        throw new RuntimeException("Failed to get response from assistant");
     }
 
-    private void deleteAssistant(String apiKey, String assistantId) {
+    /**
+     * Wait for an async result, unwrapping the CompletionException so callers see the real error.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://api.openai.com/v1/assistants/" + assistantId))
-                    .header("Authorization", "Bearer " + apiKey)
-                    .header("OpenAI-Beta", "assistants=v2")
-                    .DELETE()
-                    .build();
-
-            HttpResponse<String> response;
-            try {
-                response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return;
-            }
-            System.out.println("Assistant deletion response: " + response.statusCode());
-        } catch (Exception e) {
-            System.err.println("Error deleting assistant: " + e.getMessage());
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = OpenAiApiException.unwrap(e);
+            throw cause instanceof RuntimeException runtime ? runtime : new RuntimeException(cause.getMessage(), cause);
         }
     }
 
-}
\ No newline at end of file
+}
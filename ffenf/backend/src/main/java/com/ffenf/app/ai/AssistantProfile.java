@@ -0,0 +1,51 @@
+package com.ffenf.app.ai;
+
+/**
+ * The OpenAI assistants used for content generation. Each profile is created once and
+ * reused by {@link AssistantRegistry}; editing a profile changes its config hash, which
+ * makes the registry create a fresh assistant on next use.
+ */
+public enum AssistantProfile {
+
+    SUMMARY("summary", "Educational Content Processor - Summaries"),
+    FLASHCARDS("flashcards", "Educational Content Processor - Flashcards");
+
+    static final String MODEL = "gpt-4o";
+
+    static final String INSTRUCTIONS = """
+        You are an expert educational content processor specializing in creating comprehensive summaries and flashcards from academic materials.
+
+        Your capabilities include:
+        - Analyzing complex academic content with precision
+        - Creating structured, well-organized summaries
+        - Generating educational flashcards that promote effective learning
+        - Maintaining accuracy while improving readability
+        - Identifying key concepts, definitions, and important details
+
+        Always prioritize accuracy, completeness, and educational value in your responses.
+        """;
+
+    private final String key;
+    private final String assistantName;
+
+    AssistantProfile(String key, String assistantName) {
+        this.key = key;
+        this.assistantName = assistantName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getAssistantName() {
+        return assistantName;
+    }
+
+    public String getModel() {
+        return MODEL;
+    }
+
+    public String getInstructions() {
+        return INSTRUCTIONS;
+    }
+}
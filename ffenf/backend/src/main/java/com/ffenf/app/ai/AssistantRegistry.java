@@ -0,0 +1,160 @@
+package com.ffenf.app.ai;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Service;
+
+import com.ffenf.app.domain.OpenAiAssistant;
+import com.ffenf.app.repo.OpenAiAssistantRepository;
+
+/**
+ * Hands out OpenAI assistant ids per {@link AssistantProfile}.
+ *
+ * Assistants are created lazily on first use and remembered both in memory and in the
+ * openai_assistants table, so restarts keep using the same assistant. A stored assistant
+ * is only reused while its config hash still matches the profile definition.
+ */
+@Service
+public class AssistantRegistry {
+
+    private final OpenAiAssistantRepository assistants;
+    private final OpenAiClient openAiClient;
+    private final Map<AssistantProfile, String> cache = new ConcurrentHashMap<>();
+    // ReentrantLock rather than synchronized: creation blocks on HTTP calls from virtual threads,
+    // which would pin their carrier thread inside a monitor on JDK 21
+    private final Map<AssistantProfile, ReentrantLock> locks = new EnumMap<>(AssistantProfile.class);
+
+    public AssistantRegistry(OpenAiAssistantRepository assistants, OpenAiClient openAiClient) {
+        this.assistants = assistants;
+        this.openAiClient = openAiClient;
+        for (AssistantProfile profile : AssistantProfile.values()) {
+            locks.put(profile, new ReentrantLock());
+        }
+    }
+
+    /**
+     * Get the assistant id for a profile. Cache hits complete immediately; otherwise the
+     * lookup/creation runs on the OpenAI client's executor.
+     */
+    public CompletableFuture<String> getAssistantIdAsync(AssistantProfile profile) {
+        String cached = cache.get(profile);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return CompletableFuture.supplyAsync(() -> getAssistantId(profile), openAiClient.executor());
+    }
+
+    /**
+     * Get the assistant id for a profile, creating the assistant if none is usable yet.
+     */
+    public String getAssistantId(AssistantProfile profile) {
+        String cached = cache.get(profile);
+        if (cached != null) {
+            return cached;
+        }
+
+        ReentrantLock lock = locks.get(profile);
+        lock.lock();
+        try {
+            cached = cache.get(profile);
+            if (cached != null) {
+                return cached;
+            }
+
+            String configHash = configHash(profile);
+            OpenAiAssistant stored = assistants.findById(profile.getKey()).orElse(null);
+            if (stored != null && configHash.equals(stored.getConfigHash())) {
+                System.out.println("Reusing stored " + profile.getKey() + " assistant: " + stored.getAssistantId());
+                cache.put(profile, stored.getAssistantId());
+                return stored.getAssistantId();
+            }
+
+            if (stored != null) {
+                // Profile definition changed since this assistant was created
+                System.out.println("Assistant config changed for " + profile.getKey() + ", replacing " + stored.getAssistantId());
+                deleteAssistant(stored.getAssistantId());
+            } else {
+                stored = new OpenAiAssistant();
+                stored.setProfile(profile.getKey());
+            }
+
+            String assistantId = createAssistant(profile);
+            System.out.println("Created " + profile.getKey() + " assistant with ID: " + assistantId);
+            stored.setConfigHash(configHash);
+            stored.setAssistantId(assistantId);
+            assistants.save(stored);
+            cache.put(profile, assistantId);
+            return assistantId;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forget an assistant that OpenAI no longer knows about (e.g. deleted from the dashboard),
+     * so the next {@link #getAssistantId} call recreates it. The remote assistant is deleted too,
+     * in case it does still exist, so replacing it never leaves an orphan behind.
+     */
+    public void invalidate(AssistantProfile profile, String assistantId) {
+        ReentrantLock lock = locks.get(profile);
+        lock.lock();
+        try {
+            cache.remove(profile, assistantId);
+            assistants.findById(profile.getKey())
+                .filter(stored -> assistantId.equals(stored.getAssistantId()))
+                .ifPresent(assistants::delete);
+        } finally {
+            lock.unlock();
+        }
+        System.out.println("Invalidated " + profile.getKey() + " assistant: " + assistantId);
+        openAiClient.delete(OpenAiClient.Endpoint.ASSISTANTS, "/assistants/" + assistantId)
+            .whenComplete((ignored, error) -> {
+                if (error == null) {
+                    System.out.println("Deleted assistant: " + assistantId);
+                } else if (!OpenAiApiException.isNotFound(error)) {
+                    System.err.println("Error deleting assistant: " + error.getMessage());
+                }
+            });
+    }
+
+    private String createAssistant(AssistantProfile profile) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", profile.getModel());
+        requestBody.put("name", profile.getAssistantName());
+        requestBody.put("instructions", profile.getInstructions());
+        requestBody.put("tools", new Object[]{Map.of("type", "file_search")});
+
+        return openAiClient.postJson(OpenAiClient.Endpoint.ASSISTANTS, "/assistants", requestBody)
+            .thenApply(result -> result.path("id").asText())
+            .join();
+    }
+
+    private void deleteAssistant(String assistantId) {
+        try {
+            openAiClient.delete(OpenAiClient.Endpoint.ASSISTANTS, "/assistants/" + assistantId).join();
+            System.out.println("Deleted assistant: " + assistantId);
+        } catch (Exception e) {
+            System.err.println("Error deleting assistant: " + e.getMessage());
+        }
+    }
+
+    private static String configHash(AssistantProfile profile) {
+        String config = profile.getModel() + "\n" + profile.getAssistantName() + "\n"
+                + profile.getInstructions() + "\nfile_search";
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(config.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
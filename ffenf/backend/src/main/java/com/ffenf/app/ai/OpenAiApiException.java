@@ -0,0 +1,45 @@
+package com.ffenf.app.ai;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Non-2xx answer from the OpenAI API.
+ */
+public class OpenAiApiException extends RuntimeException {
+
+    private final int statusCode;
+
+    public OpenAiApiException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * True if the (possibly wrapped) failure is an OpenAI 404.
+     */
+    public static boolean isNotFound(Throwable t) {
+        Throwable cause = unwrap(t);
+        return cause instanceof OpenAiApiException api && api.getStatusCode() == 404;
+    }
+
+    /**
+     * True if the (possibly wrapped) failure is a 404 that names this assistant, as opposed to a
+     * missing thread, message or file further down the same call.
+     */
+    public static boolean isAssistantNotFound(Throwable t, String assistantId) {
+        Throwable cause = unwrap(t);
+        return isNotFound(cause) && assistantId != null && cause.getMessage() != null
+                && cause.getMessage().contains(assistantId);
+    }
+
+    static Throwable unwrap(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+}
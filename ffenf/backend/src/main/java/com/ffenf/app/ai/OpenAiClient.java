@@ -0,0 +1,211 @@
+package com.ffenf.app.ai;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ffenf.app.config.OpenAiConfig;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Shared non-blocking HTTP client for every OpenAI call.
+ *
+ * One HttpClient (HTTP/2, so concurrent calls multiplex over a single connection) is
+ * used by all AI services. Requests are sent with sendAsync and return CompletableFutures
+ * that callers compose; nothing parks a platform thread while waiting on OpenAI.
+ * Timeouts per endpoint are derived from openai.api.timeout. GET and DELETE are retried on
+ * 429/5xx/IO failures up to openai.api.max-retries times with exponential backoff; POSTs
+ * create threads, messages, runs, assistants and files, so they are only retried when OpenAI
+ * cannot have processed them (connection never established, or 429).
+ *
+ * Connection keep-alive is a JVM-wide setting of the JDK HTTP stack, so it is left to the
+ * launcher rather than set here, e.g. -Djdk.httpclient.keepalive.timeout=120 to keep the
+ * connection open between job bursts.
+ */
+@Component
+public class OpenAiClient {
+
+    /**
+     * Endpoint groups with their share of openai.api.timeout. Control-plane calls are
+     * short; file uploads get the full budget.
+     */
+    public enum Endpoint {
+        FILES(1.0),
+        ASSISTANTS(0.25),
+        THREADS(0.25),
+        MESSAGES(0.25),
+        RUNS(0.25),
+        RUN_STATUS(0.1),
+        CHAT(1.0);
+
+        private final double timeoutShare;
+
+        Endpoint(double timeoutShare) {
+            this.timeoutShare = timeoutShare;
+        }
+    }
+
+    private final OpenAiConfig openAiConfig;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+
+    public OpenAiClient(OpenAiConfig openAiConfig) {
+        this.openAiConfig = openAiConfig;
+        this.objectMapper = new ObjectMapper();
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("openai-", 0).factory());
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(executor)
+                .build();
+    }
+
+    public ObjectMapper objectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * Executor for follow-up work that may block briefly (e.g. reading a response stream).
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    public CompletableFuture<JsonNode> getJson(Endpoint endpoint, String path) {
+        return sendJson(endpoint, request(endpoint, path).GET());
+    }
+
+    public CompletableFuture<JsonNode> postJson(Endpoint endpoint, String path, Object body) {
+        return sendJson(endpoint, request(endpoint, path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(body))));
+    }
+
+    public CompletableFuture<JsonNode> delete(Endpoint endpoint, String path) {
+        return sendJson(endpoint, request(endpoint, path).DELETE());
+    }
+
+    public CompletableFuture<JsonNode> postMultipart(Endpoint endpoint, String path, String boundary,
+                                                     HttpRequest.BodyPublisher body) {
+        return sendJson(endpoint, request(endpoint, path)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(body));
+    }
+
+    /**
+     * POST that answers with a server-sent event stream. Not retried: the stream may have
+     * started a run before failing.
+     */
+    public CompletableFuture<HttpResponse<Stream<String>>> postEventStream(Endpoint endpoint, String path, Object body) {
+        HttpRequest request = request(endpoint, path)
+                .header("Content-Type", "application/json")
+                .header("Accept", "text/event-stream")
+                .timeout(timeout(Endpoint.FILES))
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(body)))
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofLines());
+    }
+
+    /**
+     * Completes after the given delay without holding a thread while waiting.
+     */
+    public CompletableFuture<Void> delay(long millis) {
+        return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(millis, TimeUnit.MILLISECONDS, executor));
+    }
+
+    private HttpRequest.Builder request(Endpoint endpoint, String path) {
+        if (!openAiConfig.isConfigured()) {
+            throw new IllegalStateException("OpenAI API key not configured. Please set OPENAI_API_KEY environment variable.");
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(openAiConfig.getBaseUrl() + path))
+                .timeout(timeout(endpoint))
+                .header("OpenAI-Beta", "assistants=v2");
+        if (openAiConfig.hasKey()) {
+            builder.header("Authorization", "Bearer " + openAiConfig.getKey());
+        }
+        return builder;
+    }
+
+    private Duration timeout(Endpoint endpoint) {
+        long millis = (long) (openAiConfig.getTimeout() * endpoint.timeoutShare);
+        return Duration.ofMillis(Math.max(5000, millis));
+    }
+
+    private CompletableFuture<JsonNode> sendJson(Endpoint endpoint, HttpRequest.Builder builder) {
+        HttpRequest request = builder.build();
+        return sendWithRetry(request, 0).thenApply(response -> {
+            if (response.statusCode() / 100 != 2) {
+                throw new OpenAiApiException(response.statusCode(),
+                        "OpenAI " + endpoint + " request failed (" + response.statusCode() + "): " + response.body());
+            }
+            try {
+                return objectMapper.readTree(response.body());
+            } catch (JsonProcessingException e) {
+                throw new OpenAiApiException(response.statusCode(), "Unreadable OpenAI response: " + e.getMessage());
+            }
+        });
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendWithRetry(HttpRequest request, int attempt) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    if (isRetryable(request, response, error) && attempt < openAiConfig.getMaxRetries()) {
+                        long backoff = 500L * (1L << attempt);
+                        System.err.println("OpenAI " + request.method() + " " + request.uri().getPath() + " failed ("
+                                + (error != null ? error.getMessage() : "HTTP " + response.statusCode())
+                                + "), retry " + (attempt + 1) + " in " + backoff + "ms");
+                        return delay(backoff).thenCompose(ignored -> sendWithRetry(request, attempt + 1));
+                    }
+                    return error != null
+                            ? CompletableFuture.<HttpResponse<String>>failedFuture(error)
+                            : CompletableFuture.completedFuture(response);
+                })
+                .thenCompose(future -> future);
+    }
+
+    private static boolean isRetryable(HttpRequest request, HttpResponse<?> response, Throwable error) {
+        boolean idempotent = "GET".equals(request.method()) || "DELETE".equals(request.method());
+        if (error != null) {
+            Throwable cause = OpenAiApiException.unwrap(error);
+            if (idempotent) {
+                return cause instanceof IOException;
+            }
+            // The request never reached OpenAI
+            return cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException;
+        }
+        int status = response.statusCode();
+        return status == 429 || (idempotent && status >= 500);
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialise OpenAI request body", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -2,181 +2,73 @@ package com.ffenf.app.ai;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.file.Files;
-import java.time.Duration;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.ffenf.app.config.OpenAiConfig;
 
 @Service
 public class OpenAiFileService {
 
-    private final HttpClient httpClient;
-    private final ObjectMapper objectMapper;
+    private final OpenAiClient openAiClient;
     private final OpenAiConfig openAiConfig;
 
     @Autowired
-    public OpenAiFileService(OpenAiConfig openAiConfig) {
+    public OpenAiFileService(OpenAiConfig openAiConfig, OpenAiClient openAiClient) {
         this.openAiConfig = openAiConfig;
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(60))
-                .build();
-        this.objectMapper = new ObjectMapper();
+        this.openAiClient = openAiClient;
     }
 
     /**
-     * Upload a PDF file to OpenAI and get a file ID
+     * Upload a local PDF file to OpenAI and get a file ID
      */
-    public String uploadPdfToOpenAI(MultipartFile file) throws IOException {
-        System.out.println("Uploading PDF to OpenAI: " + file.getOriginalFilename());
+    public String uploadPdfToOpenAI(File file) throws IOException {
         
         if (!openAiConfig.isConfigured()) {
             throw new RuntimeException("OpenAI API key not configured. Please set OPENAI_API_KEY environment variable.");
         }
         
-        String apiKey = openAiConfig.getKey();
-        
-        // Create multipart form data
-        String boundary = "----WebKitFormBoundary" + System.currentTimeMillis();
-        
-        StringBuilder formData = new StringBuilder();
-        formData.append("--").append(boundary).append("\r\n");
-        formData.append("Content-Disposition: form-data; name=\"file\"; filename=\"").append(file.getOriginalFilename()).append("\"\r\n");
-        formData.append("Content-Type: application/pdf\r\n\r\n");
-        
-        // Add purpose parameter
-        String purposeData = "\r\n--" + boundary + "\r\n" +
-                           "Content-Disposition: form-data; name=\"purpose\"\r\n\r\n" +
-                           "assistants";
-        
-        // Convert file to bytes and append
-        byte[] fileBytes = file.getBytes();
-        String formDataStr = formData.toString();
-        byte[] formDataBytes = formDataStr.getBytes();
-        byte[] purposeBytes = purposeData.getBytes();
-        
-        // Create the complete multipart body
-        byte[] boundaryBytes = ("\r\n--" + boundary + "--\r\n").getBytes();
-        byte[] completeBody = new byte[formDataBytes.length + fileBytes.length + purposeBytes.length + boundaryBytes.length];
-        
-        int offset = 0;
-        System.arraycopy(formDataBytes, 0, completeBody, offset, formDataBytes.length);
-        offset += formDataBytes.length;
-        System.arraycopy(fileBytes, 0, completeBody, offset, fileBytes.length);
-        offset += fileBytes.length;
-        System.arraycopy(purposeBytes, 0, completeBody, offset, purposeBytes.length);
-        offset += purposeBytes.length;
-        System.arraycopy(boundaryBytes, 0, completeBody, offset, boundaryBytes.length);
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.openai.com/v1/files"))
-                .header("Authorization", "Bearer " + apiKey)
-                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
-                .POST(HttpRequest.BodyPublishers.ofByteArray(completeBody))
-                .build();
-
-        HttpResponse<String> response;
-        try {
-            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Request interrupted", e);
-        }
-        
-        System.out.println("OpenAI File Upload Response Status: " + response.statusCode());
-        System.out.println("OpenAI File Upload Response Body: " + response.body());
-
-        if (response.statusCode() == 200) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> result = objectMapper.readValue(response.body(), Map.class);
-            String fileId = (String) result.get("id");
-            System.out.println("File uploaded successfully with ID: " + fileId);
-            return fileId;
-        } else {
-            throw new RuntimeException("Failed to upload file to OpenAI: " + response.body());
-        }
+        // Read from disk in chunks as the request is written
+        return upload(file.getName(), HttpRequest.BodyPublishers.ofFile(file.toPath()));
     }
 
     /**
-     * Upload a local PDF file to OpenAI and get a file ID
+     * Send a multipart/form-data body of header, file content and trailer without ever
+     * assembling it in memory; heap use stays flat regardless of the PDF's size.
      */
-    public String uploadPdfToOpenAI(File file) throws IOException {
-        System.out.println("Uploading PDF to OpenAI: " + file.getName());
-        
-        if (!openAiConfig.isConfigured()) {
-            throw new RuntimeException("OpenAI API key not configured. Please set OPENAI_API_KEY environment variable.");
-        }
-        
-        String apiKey = openAiConfig.getKey();
-        
-        // Read file bytes
-        byte[] fileBytes = Files.readAllBytes(file.toPath());
-        
-        // Create multipart form data
+    private String upload(String filename, HttpRequest.BodyPublisher content) {
         String boundary = "----WebKitFormBoundary" + System.currentTimeMillis();
         
-        StringBuilder formData = new StringBuilder();
-        formData.append("--").append(boundary).append("\r\n");
-        formData.append("Content-Disposition: form-data; name=\"file\"; filename=\"").append(file.getName()).append("\"\r\n");
-        formData.append("Content-Type: application/pdf\r\n\r\n");
-        
-        // Add purpose parameter
-        String purposeData = "\r\n--" + boundary + "\r\n" +
-                           "Content-Disposition: form-data; name=\"purpose\"\r\n\r\n" +
-                           "assistants";
+        String header = "--" + boundary + "\r\n" +
+                        "Content-Disposition: form-data; name=\"file\"; filename=\"" + filename + "\"\r\n" +
+                        "Content-Type: application/pdf\r\n\r\n";
         
-        // Create the complete multipart body
-        String formDataStr = formData.toString();
-        byte[] formDataBytes = formDataStr.getBytes();
-        byte[] purposeBytes = purposeData.getBytes();
-        byte[] boundaryBytes = ("\r\n--" + boundary + "--\r\n").getBytes();
+        // Purpose parameter followed by the closing boundary
+        String trailer = "\r\n--" + boundary + "\r\n" +
+                         "Content-Disposition: form-data; name=\"purpose\"\r\n\r\n" +
+                         "assistants" +
+                         "\r\n--" + boundary + "--\r\n";
         
-        byte[] completeBody = new byte[formDataBytes.length + fileBytes.length + purposeBytes.length + boundaryBytes.length];
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.concat(
+                HttpRequest.BodyPublishers.ofByteArray(header.getBytes(StandardCharsets.UTF_8)),
+                content,
+                HttpRequest.BodyPublishers.ofByteArray(trailer.getBytes(StandardCharsets.UTF_8)));
         
-        int offset = 0;
-        System.arraycopy(formDataBytes, 0, completeBody, offset, formDataBytes.length);
-        offset += formDataBytes.length;
-        System.arraycopy(fileBytes, 0, completeBody, offset, fileBytes.length);
-        offset += fileBytes.length;
-        System.arraycopy(purposeBytes, 0, completeBody, offset, purposeBytes.length);
-        offset += purposeBytes.length;
-        System.arraycopy(boundaryBytes, 0, completeBody, offset, boundaryBytes.length);
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.openai.com/v1/files"))
-                .header("Authorization", "Bearer " + apiKey)
-                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
-                .POST(HttpRequest.BodyPublishers.ofByteArray(completeBody))
-                .build();
+        return send(boundary, body);
+    }
 
-        HttpResponse<String> response;
+    private String send(String boundary, HttpRequest.BodyPublisher body) {
         try {
-            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Request interrupted", e);
-        }
-        
-        System.out.println("OpenAI File Upload Response Status: " + response.statusCode());
-        System.out.println("OpenAI File Upload Response Body: " + response.body());
-
-        if (response.statusCode() == 200) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> result = objectMapper.readValue(response.body(), Map.class);
-            String fileId = (String) result.get("id");
-            System.out.println("File uploaded successfully with ID: " + fileId);
+            JsonNode result = openAiClient.postMultipart(OpenAiClient.Endpoint.FILES, "/files", boundary, body).join();
+            String fileId = result.path("id").asText();
             return fileId;
-        } else {
-            throw new RuntimeException("Failed to upload file to OpenAI: " + response.body());
+        } catch (CompletionException e) {
+            throw new RuntimeException("Failed to upload file to OpenAI: " + OpenAiApiException.unwrap(e).getMessage());
         }
     }
 
@@ -190,22 +82,8 @@ public class OpenAiFileService {
                 return;
             }
             
-            String apiKey = openAiConfig.getKey();
-            
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://api.openai.com/v1/files/" + fileId))
-                    .header("Authorization", "Bearer " + apiKey)
-                    .DELETE()
-                    .build();
-
-            HttpResponse<String> response;
-            try {
-                response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return;
-            }
-            System.out.println("File deletion response: " + response.statusCode());
+            openAiClient.delete(OpenAiClient.Endpoint.FILES, "/files/" + fileId).join();
+            System.out.println("Deleted OpenAI file: " + fileId);
         } catch (Exception e) {
             System.err.println("Error deleting file from OpenAI: " + e.getMessage());
         }
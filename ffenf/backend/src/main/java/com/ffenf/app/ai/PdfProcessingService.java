@@ -2,40 +2,180 @@ package com.ffenf.app.ai;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Extracts the text layer of PDFs.
+ *
+ * Large documents are split into page ranges that are extracted in parallel on a dedicated
+ * fork-join pool. PDDocument is not thread-safe, so every range opens its own document;
+ * all documents use PDFBox's temp-file stream cache, so decoded streams don't sit on the heap.
+ * Whitespace is collapsed while the stripper writes, instead of regex passes over the full text.
+ */
 @Service
 public class PdfProcessingService {
 
+    private final ForkJoinPool pool;
+    private final int pagesPerTask;
+
+    public PdfProcessingService(@Value("${app.pdf.extract.parallelism:0}") int parallelism,
+                                @Value("${app.pdf.extract.pages-per-task:20}") int pagesPerTask) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+        this.pagesPerTask = Math.max(1, pagesPerTask);
+    }
+
     public String extractTextFromPdf(String filePath) throws IOException {
-        try (PDDocument document = Loader.loadPDF(new File(filePath))) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText(document);
-        }
+        return extractTextFromPdf(new File(filePath));
     }
 
     public String extractTextFromPdf(File file) throws IOException {
-        try (PDDocument document = Loader.loadPDF(file)) {
+        int pageCount;
+        try (PDDocument document = load(file)) {
+            pageCount = document.getNumberOfPages();
+        }
+
+        String fullText;
+        if (pageCount <= pagesPerTask) {
+            fullText = extractRange(file, 1, pageCount);
+        } else {
+            try {
+                fullText = pool.invoke(new PageRangeTask(file, 1, pageCount));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        System.out.println("PDF Text Extraction - Pages: " + pageCount + ", total characters: " + fullText.length());
+
+        return fullText;
+    }
+
+    private static PDDocument load(File file) throws IOException {
+        return Loader.loadPDF(file, IOUtils.createTempFileOnlyStreamCache());
+    }
+
+    /**
+     * Extract pages [startPage, endPage] (1-based, inclusive) with whitespace already collapsed.
+     */
+    private static String extractRange(File file, int startPage, int endPage) throws IOException {
+        try (PDDocument document = load(file)) {
             PDFTextStripper stripper = new PDFTextStripper();
-            
+
             // Configure for better text extraction
             stripper.setSortByPosition(true);
             stripper.setSuppressDuplicateOverlappingText(true);
-            
-            // Extract text from all pages
-            String fullText = stripper.getText(document);
-            
-            // Clean up the text
-            fullText = fullText.replaceAll("\\s+", " ").trim();
-            
-            System.out.println("PDF Text Extraction - Total characters: " + fullText.length());
-            System.out.println("PDF Text Extraction - First 500 chars: " + fullText.substring(0, Math.min(500, fullText.length())));
-            
-            return fullText;
+            stripper.setStartPage(startPage);
+            stripper.setEndPage(endPage);
+
+            WhitespaceCollapsingWriter writer = new WhitespaceCollapsingWriter();
+            stripper.writeText(document, writer);
+            return writer.toString();
+        }
+    }
+
+    /**
+     * Halves the page range until it is at most pagesPerTask pages, then extracts it.
+     */
+    private class PageRangeTask extends RecursiveTask<String> {
+
+        private final File file;
+        private final int startPage;
+        private final int endPage;
+
+        PageRangeTask(File file, int startPage, int endPage) {
+            this.file = file;
+            this.startPage = startPage;
+            this.endPage = endPage;
         }
+
+        @Override
+        protected String compute() {
+            if (endPage - startPage + 1 <= pagesPerTask) {
+                try {
+                    return extractRange(file, startPage, endPage);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            int middle = (startPage + endPage) >>> 1;
+            PageRangeTask first = new PageRangeTask(file, startPage, middle);
+            PageRangeTask second = new PageRangeTask(file, middle + 1, endPage);
+            second.fork();
+            String firstText = first.compute();
+            String secondText = second.join();
+
+            if (firstText.isEmpty() || secondText.isEmpty()) {
+                return firstText + secondText;
+            }
+            return firstText + " " + secondText;
+        }
+    }
+
+    /**
+     * Writer that turns every run of whitespace into a single space and drops leading and
+     * trailing whitespace, in one pass as characters arrive.
+     */
+    static class WhitespaceCollapsingWriter extends Writer {
+
+        private final StringBuilder text = new StringBuilder();
+        private boolean pendingSpace = false;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                collapse(buffer[i]);
+            }
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                collapse(str.charAt(i));
+            }
+        }
+
+        private void collapse(char c) {
+            if (Character.isWhitespace(c)) {
+                pendingSpace = text.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    text.append(' ');
+                    pendingSpace = false;
+                }
+                text.append(c);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
     }
 }
@@ -0,0 +1,229 @@
+package com.ffenf.app.ai;
+
+import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ffenf.app.config.OpenAiConfig;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Waits for Assistants API runs to finish.
+ *
+ * Polling starts at openai.api.poll-initial-delay and backs off by poll-multiplier up to
+ * poll-max-delay, so short runs return almost immediately while long runs don't hammer
+ * the status endpoint. Waits between polls are scheduled rather than slept, so no thread
+ * is held while a run is in progress. With openai.api.stream-runs=true the run is started
+ * in SSE mode instead and returns the moment OpenAI emits the completed message.
+ *
+ * Every run records an "openai.run.duration" timer (tags: profile, mode, outcome) and,
+ * for polled runs, an "openai.run.polls" summary of status checks needed.
+ */
+@Component
+public class RunCompletionWaiter {
+
+    private static final List<String> FAILED_STATUSES = List.of("failed", "cancelled", "expired", "incomplete");
+
+    private final OpenAiConfig openAiConfig;
+    private final MeterRegistry meterRegistry;
+    private final OpenAiClient openAiClient;
+    private final ObjectMapper objectMapper;
+
+    public RunCompletionWaiter(OpenAiConfig openAiConfig, MeterRegistry meterRegistry, OpenAiClient openAiClient) {
+        this.openAiConfig = openAiConfig;
+        this.meterRegistry = meterRegistry;
+        this.openAiClient = openAiClient;
+        this.objectMapper = openAiClient.objectMapper();
+    }
+
+    /**
+     * Poll a run until it completes, with exponential backoff between status checks.
+     */
+    public CompletableFuture<Void> awaitCompletion(String threadId, String runId, AssistantProfile profile) {
+        long started = System.nanoTime();
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(openAiConfig.getRunTimeout());
+        AtomicInteger polls = new AtomicInteger();
+        String[] outcome = {"failed"};
+
+        return poll(threadId, runId, Math.max(50, openAiConfig.getPollInitialDelay()), deadline, polls, outcome)
+                .whenComplete((ignored, error) -> {
+                    long elapsed = System.nanoTime() - started;
+                    record(profile, "poll", outcome[0], elapsed);
+                    DistributionSummary.builder("openai.run.polls")
+                            .description("Status checks needed per polled assistant run")
+                            .tag("profile", profile.getKey())
+                            .register(meterRegistry)
+                            .record(polls.get());
+                });
+    }
+
+    private CompletableFuture<Void> poll(String threadId, String runId, long delay, long deadline,
+                                         AtomicInteger polls, String[] outcome) {
+        return openAiClient.getJson(OpenAiClient.Endpoint.RUN_STATUS, "/threads/" + threadId + "/runs/" + runId)
+                .thenCompose(statusResult -> {
+                    polls.incrementAndGet();
+                    String status = statusResult.path("status").asText();
+
+                    if ("completed".equals(status)) {
+                        outcome[0] = "completed";
+                        return CompletableFuture.completedFuture(null);
+                    } else if (FAILED_STATUSES.contains(status)) {
+                        throw new RuntimeException("Run failed with status: " + status + ", error: " + statusResult.path("last_error"));
+                    }
+
+                    if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay) > deadline) {
+                        outcome[0] = "timeout";
+                        throw new RuntimeException("Run did not complete within timeout period");
+                    }
+
+                    // Small jitter keeps concurrent jobs from polling in lockstep
+                    long jitter = ThreadLocalRandom.current().nextLong(Math.max(1, delay / 10));
+                    long nextDelay = Math.min(openAiConfig.getPollMaxDelay(), (long) (delay * openAiConfig.getPollMultiplier()));
+                    return openAiClient.delay(delay + jitter)
+                            .thenCompose(ignored -> poll(threadId, runId, nextDelay, deadline, polls, outcome));
+                });
+    }
+
+    /**
+     * Start a run in streaming mode and return the assistant's reply once the run completes.
+     *
+     * The whole stream is bounded by openai.api.run-timeout: the request timeout only covers the
+     * response headers, so a stalled stream would otherwise block its reader (and the worker slot)
+     * forever. On timeout the reader is interrupted, which closes the stream, and the run is cancelled.
+     */
+    public CompletableFuture<String> streamRun(String threadId, String assistantId, AssistantProfile profile) {
+        long started = System.nanoTime();
+        String[] outcome = {"failed"};
+        AtomicReference<Thread> reader = new AtomicReference<>();
+        AtomicReference<String> runId = new AtomicReference<>();
+
+        return openAiClient.postEventStream(OpenAiClient.Endpoint.RUNS, "/threads/" + threadId + "/runs",
+                        Map.of("assistant_id", assistantId, "stream", true))
+                // Reading the event stream blocks, so it runs on one of the client's virtual threads
+                .thenApplyAsync(response -> {
+                    reader.set(Thread.currentThread());
+                    try {
+                        return readStream(response, outcome, runId);
+                    } finally {
+                        reader.set(null);
+                    }
+                }, openAiClient.executor())
+                .orTimeout(openAiConfig.getRunTimeout(), TimeUnit.MILLISECONDS)
+                .whenComplete((ignored, error) -> {
+                    if (OpenAiApiException.unwrap(error) instanceof TimeoutException) {
+                        outcome[0] = "timeout";
+                        abandonStream(threadId, reader.get(), runId.get());
+                    }
+                    long elapsed = System.nanoTime() - started;
+                    record(profile, "stream", outcome[0], elapsed);
+                });
+    }
+
+    private void abandonStream(String threadId, Thread readerThread, String runId) {
+        if (readerThread != null) {
+            readerThread.interrupt();
+        }
+        if (runId != null) {
+            openAiClient.postJson(OpenAiClient.Endpoint.RUNS, "/threads/" + threadId + "/runs/" + runId + "/cancel", Map.of())
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            System.err.println("Failed to cancel timed out run " + runId + ": " + error.getMessage());
+                        }
+                    });
+        }
+    }
+
+    private String readStream(HttpResponse<Stream<String>> response, String[] outcome, AtomicReference<String> runId) {
+        try (Stream<String> lines = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new OpenAiApiException(response.statusCode(),
+                        "Failed to run assistant: " + String.join("\n", lines.toList()));
+            }
+
+            String event = null;
+            String reply = null;
+            Iterator<String> it = lines.iterator();
+            while (it.hasNext()) {
+                String line = it.next();
+                if (line.startsWith("event:")) {
+                    event = line.substring(6).trim();
+                    continue;
+                }
+                if (!line.startsWith("data:") || event == null) {
+                    continue;
+                }
+                String data = line.substring(5).trim();
+
+                switch (event) {
+                    case "thread.run.created" -> runId.set(readTree(data).path("id").asText(null));
+                    case "thread.message.completed" -> {
+                        JsonNode message = readTree(data);
+                        if ("assistant".equals(message.path("role").asText())) {
+                            reply = extractText(message);
+                        }
+                    }
+                    case "thread.run.completed" -> outcome[0] = "completed";
+                    case "thread.run.failed", "thread.run.cancelled", "thread.run.expired", "thread.run.incomplete" ->
+                        throw new RuntimeException("Run failed with event: " + event + ", error: "
+                                + readTree(data).path("last_error"));
+                    case "error" -> throw new RuntimeException("Run stream error: " + data);
+                    default -> { }
+                }
+
+                if ("completed".equals(outcome[0]) && reply != null) {
+                    return reply;
+                }
+            }
+
+            if (reply != null) {
+                outcome[0] = "completed";
+                return reply;
+            }
+            throw new RuntimeException("Run stream ended without an assistant reply");
+        }
+    }
+
+    private JsonNode readTree(String data) {
+        try {
+            return objectMapper.readTree(data);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Unreadable run stream event: " + e.getMessage());
+        }
+    }
+
+    private String extractText(JsonNode message) {
+        for (JsonNode item : message.path("content")) {
+            if ("text".equals(item.path("type").asText())) {
+                return item.path("text").path("value").asText();
+            }
+        }
+        return null;
+    }
+
+    private void record(AssistantProfile profile, String mode, String outcome, long elapsedNanos) {
+        Timer.builder("openai.run.duration")
+                .description("Wall-clock time from run start to completion")
+                .tag("profile", profile.getKey())
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+}
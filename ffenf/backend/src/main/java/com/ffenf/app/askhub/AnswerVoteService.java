@@ -0,0 +1,55 @@
+package com.ffenf.app.askhub;
+
+import java.util.UUID;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ffenf.app.repo.AnswerRepository;
+import com.ffenf.app.repo.AnswerRepository.VoteCounts;
+
+/**
+ * Per-user answer voting. Each user has at most one vote per answer (answer_votes primary key);
+ * voting the same way again withdraws it and voting the other way switches it.
+ *
+ * The vote row change and the relative counter update on answers commit together, so
+ * concurrent voters never lose updates and only the user's own vote row is locked.
+ */
+@Service
+public class AnswerVoteService {
+
+    public record VoteResult(int votesUp, int votesDown, int userVote) {}
+
+    private final AnswerRepository answers;
+
+    public AnswerVoteService(AnswerRepository answers) {
+        this.answers = answers;
+    }
+
+    @Transactional
+    public VoteResult toggle(UUID answerId, UUID userId, boolean upVote) {
+        int value = upVote ? 1 : -1;
+        int userVote;
+        if (answers.insertVoteIfAbsent(answerId, userId, value) == 1) {
+            answers.applyVoteDelta(answerId, upVote ? 1 : 0, upVote ? 0 : 1);
+            userVote = value;
+        } else {
+            Integer previous = answers.lockVote(answerId, userId);
+            if (previous == null) {
+                // Withdrawn by a concurrent request between the insert and the lock
+                throw new IllegalStateException("Vote changed concurrently, please retry");
+            }
+            if (previous == value) {
+                answers.deleteVote(answerId, userId);
+                answers.applyVoteDelta(answerId, upVote ? -1 : 0, upVote ? 0 : -1);
+                userVote = 0;
+            } else {
+                answers.updateVote(answerId, userId, value);
+                answers.applyVoteDelta(answerId, upVote ? 1 : -1, upVote ? -1 : 1);
+                userVote = value;
+            }
+        }
+        VoteCounts counts = answers.findVoteCounts(answerId);
+        return new VoteResult(counts.getVotesUp(), counts.getVotesDown(), userVote);
+    }
+}
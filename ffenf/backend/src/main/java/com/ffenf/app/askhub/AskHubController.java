@@ -4,15 +4,20 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -23,12 +28,20 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.ffenf.app.auth.JwtService;
+import com.ffenf.app.config.DatabaseInfo;
+import com.ffenf.app.courses.CourseStatsService;
 import com.ffenf.app.domain.Answer;
 import com.ffenf.app.domain.Question;
 import com.ffenf.app.domain.User;
+import com.ffenf.app.paging.CursorPage;
+import com.ffenf.app.paging.KeysetCursor;
 import com.ffenf.app.repo.AnswerRepository;
 import com.ffenf.app.repo.QuestionRepository;
+import com.ffenf.app.repo.QuestionRepository.QuestionListItem;
+import com.ffenf.app.repo.QuestionRepository.QuestionSearchItem;
 import com.ffenf.app.repo.UserRepository;
+import com.ffenf.app.search.LuceneSearchIndex;
+import com.ffenf.app.search.TrigramSearchService;
 import com.ffenf.app.storage.FileStorageService;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -44,6 +57,14 @@ public class AskHubController {
 	private final FileStorageService fileStorageService;
 	private final UserRepository userRepository;
 	private final JwtService jwtService;
+	private final DatabaseInfo databaseInfo;
+	private final TrigramSearchService trigramSearchService;
+	private final ObjectProvider<LuceneSearchIndex> searchIndex;
+	private final CourseStatsService courseStats;
+	private final QuestionViewCounter viewCounter;
+	private final AnswerVoteService answerVoteService;
+
+	private static final int SNIPPET_LENGTH = 200;
 	
 	private String extractTokenFromRequest(HttpServletRequest request) {
 		String bearerToken = request.getHeader("Authorization");
@@ -55,11 +76,32 @@ public class AskHubController {
 
 	// Question endpoints
 	@GetMapping("/questions")
-	public ResponseEntity<Page<Question>> getAllQuestions(
+	public ResponseEntity<?> getAllQuestions(
 			@RequestParam(defaultValue = "0") int page,
 			@RequestParam(defaultValue = "10") int size,
 			@RequestParam(defaultValue = "createdAt") String sortBy,
-			@RequestParam(defaultValue = "desc") String sortDir) {
+			@RequestParam(defaultValue = "desc") String sortDir,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "false") boolean includeTotal) {
+		
+		if (cursor != null) {
+			// Keyset paging over (created_at, id): no OFFSET scan, and the count only on request
+			if (!"createdAt".equals(sortBy) || !"desc".equalsIgnoreCase(sortDir)) {
+				return ResponseEntity.badRequest().body(Map.of("error", "Cursor paging only supports sortBy=createdAt, descending"));
+			}
+			KeysetCursor after;
+			try {
+				after = KeysetCursor.decode(cursor);
+			} catch (IllegalArgumentException e) {
+				return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+			}
+			int limit = Math.max(1, Math.min(size, 100));
+			List<Question> rows = after == null
+					? questionRepository.findNewest(limit + 1)
+					: questionRepository.findNewestAfter(after.createdAt(), after.id(), limit + 1);
+			return ResponseEntity.ok(CursorPage.of(rows, limit, q -> KeysetCursor.of(q.getCreatedAt(), q.getId()),
+					includeTotal ? questionRepository.count() : null));
+		}
 		
 		Sort sort = sortDir.equalsIgnoreCase("desc") ? 
 			Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
@@ -130,6 +172,8 @@ public class AskHubController {
 			}
 			
 			Question savedQuestion = questionRepository.save(question);
+			searchIndex.ifAvailable(index -> index.indexQuestion(savedQuestion));
+			courseStats.questionAdded(savedQuestion.getCourseCode());
 			
 			// Award coins for asking good questions
 			// This could be moved to a service layer for better organization
@@ -150,9 +194,9 @@ public class AskHubController {
 			return ResponseEntity.notFound().build();
 		}
 		
-		// Increment view count
-		question.setViewsCount(question.getViewsCount() + 1);
-		questionRepository.save(question);
+		// Count the view in memory (flushed in batches) and show it straight away
+		viewCounter.recordView(id);
+		question.setViewsCount(question.getViewsCount() + (int) viewCounter.pendingViews(id));
 		
 		// Get answers with user information
 		List<Answer> answers = answerRepository.findByQuestionIdOrderByVotes(id);
@@ -186,28 +230,100 @@ public class AskHubController {
 	}
 
 	@GetMapping("/questions/search")
-	public ResponseEntity<Page<Question>> searchQuestions(
+	public ResponseEntity<Page<Map<String, Object>>> searchQuestions(
 			@RequestParam String query,
 			@RequestParam(value = "courseCode", required = false) String courseCode,
 			@RequestParam(defaultValue = "0") int page,
-			@RequestParam(defaultValue = "10") int size) {
+			@RequestParam(defaultValue = "10") int size,
+			@RequestParam(defaultValue = "false") boolean fuzzy) {
+		
+		String course = courseCode == null || courseCode.isEmpty() ? null : courseCode;
+		LuceneSearchIndex luceneIndex = searchIndex.getIfAvailable();
+		if (luceneIndex != null && !fuzzy) {
+			// Ranked by the embedded index, rows then fetched by primary key in one query
+			LuceneSearchIndex.Result result = luceneIndex.searchQuestions(query, course, page, size);
+			Map<UUID, Question> byId = questionRepository.findAllById(result.ids()).stream()
+					.collect(Collectors.toMap(Question::getId, Function.identity()));
+			List<Map<String, Object>> items = result.hits().stream()
+					.filter(hit -> byId.containsKey(hit.id()))
+					.map(hit -> toSearchItem(byId.get(hit.id()), hit.highlight()))
+					.toList();
+			return ResponseEntity.ok(new PageImpl<>(items, PageRequest.of(page, size), result.totalHits()));
+		}
+		
+		if (databaseInfo.isPostgres()) {
+			if (!fuzzy) {
+				// Ranked full-text match on the GIN-indexed search_vector, with highlighted snippets
+				List<QuestionSearchItem> rows = questionRepository.searchFullText(query, course, size, (long) page * size);
+				if (!rows.isEmpty() || page > 0) {
+					List<Map<String, Object>> items = rows.stream().map(this::toSearchItem).toList();
+					return ResponseEntity.ok(new PageImpl<>(items, PageRequest.of(page, size),
+							questionRepository.countFullText(query, course)));
+				}
+			}
+			// Typo-tolerant title match on the trigram index, also used when full-text finds nothing
+			return ResponseEntity.ok(trigramSearchService.searchQuestions(query, course, page, size)
+					.map(q -> toSearchItem(q, null)));
+		}
 		
 		Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
 		Page<Question> questions;
 		
-		if (courseCode != null && !courseCode.isEmpty()) {
-			questions = questionRepository.searchByCourseAndKeyword(courseCode, query, pageable);
+		if (course != null) {
+			questions = questionRepository.searchByCourseAndKeyword(course, query.toLowerCase(), pageable);
 		} else {
-			questions = questionRepository.searchByText(query, pageable);
+			questions = questionRepository.searchByText(query.toLowerCase(), pageable);
 		}
 		
-		return ResponseEntity.ok(questions);
+		return ResponseEntity.ok(questions.map(q -> toSearchItem(q, null)));
+	}
+
+	private Map<String, Object> toSearchItem(QuestionSearchItem q) {
+		Map<String, Object> map = toListItem(q.getId(), q.getUserId(), q.getTitle(), q.getCourseCode(), q.getSubject(),
+				q.getTags(), q.getStatus(), q.getAnswersCount(), q.getViewsCount(), q.getPriority(), q.getCreatedAt());
+		map.put("highlight", q.getHighlight());
+		return map;
+	}
+
+	/**
+	 * Search results carry a snippet instead of the full description: the index highlight when
+	 * there is one, otherwise the start of the description.
+	 */
+	private Map<String, Object> toSearchItem(Question q, String highlight) {
+		Map<String, Object> map = toListItem(q.getId(), q.getUserId(), q.getTitle(), q.getCourseCode(), q.getSubject(),
+				q.getTags(), q.getStatus(), q.getAnswersCount(), q.getViewsCount(), q.getPriority(), q.getCreatedAt());
+		String description = q.getDescription() != null ? q.getDescription() : "";
+		map.put("highlight", highlight != null ? highlight
+				: description.length() > SNIPPET_LENGTH ? description.substring(0, SNIPPET_LENGTH) + "..." : description);
+		return map;
+	}
+
+	private Map<String, Object> toListItem(UUID id, UUID userId, String title, String courseCode, String subject,
+			String tags, String status, int answersCount, int viewsCount, String priority, java.time.Instant createdAt) {
+		Map<String, Object> map = new HashMap<>();
+		map.put("id", id);
+		map.put("userId", userId);
+		map.put("title", title);
+		map.put("courseCode", courseCode);
+		map.put("subject", subject);
+		map.put("tags", tags);
+		map.put("status", status);
+		map.put("answersCount", answersCount);
+		map.put("viewsCount", viewsCount);
+		map.put("priority", priority);
+		map.put("createdAt", createdAt);
+		return map;
 	}
 
 	@GetMapping("/questions/unanswered")
-	public ResponseEntity<List<Question>> getUnansweredQuestions() {
-		List<Question> questions = questionRepository.findUnansweredQuestions();
-		return ResponseEntity.ok(questions);
+	public ResponseEntity<?> getUnansweredQuestions(
+			@RequestParam(defaultValue = "20") int size,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "false") boolean includeTotal) {
+		return listQuestions(cursor, size,
+				limit -> questionRepository.findUnanswered(limit),
+				(after, limit) -> questionRepository.findUnansweredAfter(after.createdAt(), after.id(), limit),
+				includeTotal ? () -> questionRepository.countByAnswersCount(0) : null);
 	}
 
 	// Answer endpoints
@@ -272,8 +388,14 @@ public class AskHubController {
 	@PostMapping("/answers/{answerId}/accept")
 	public ResponseEntity<Void> acceptAnswer(@PathVariable UUID answerId, HttpServletRequest request) {
 		try {
-			Authentication auth = (Authentication) request.getAttribute("auth");
-			UUID userId = (UUID) auth.getPrincipal();
+			String token = extractTokenFromRequest(request);
+			if (token == null || token.isEmpty()) {
+				return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+			}
+			
+			String email = jwtService.parse(token).getSubject();
+			User user = userRepository.findByEmail(email).orElseThrow(() -> 
+				new RuntimeException("User not found: " + email));
 			
 			Answer answer = answerRepository.findById(answerId).orElse(null);
 			if (answer == null) {
@@ -281,46 +403,41 @@ public class AskHubController {
 			}
 			
 			Question question = questionRepository.findById(answer.getQuestionId()).orElse(null);
-			if (question == null || !question.getUserId().equals(userId)) {
+			if (question == null || !question.getUserId().equals(user.getId())) {
 				return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
 			}
 			
-			// Unaccept any previously accepted answers for this question
-			List<Answer> existingAnswers = answerRepository.findByIsAcceptedTrueAndQuestionId(answer.getQuestionId());
-			for (Answer existing : existingAnswers) {
-				existing.setAccepted(false);
-				answerRepository.save(existing);
-			}
-			
-			// Accept this answer
-			answer.setAccepted(true);
-			answerRepository.save(answer);
-			
-			// Close the question
-			question.setStatus("RESOLVED");
-			questionRepository.save(question);
+			// Un-accept the previous answer, accept this one and resolve the question in one transaction
+			answerRepository.acceptAnswer(question.getId(), answerId);
 			
 			return ResponseEntity.ok().build();
 			
 		} catch (Exception e) {
+			System.err.println("Failed to accept answer " + answerId + ": " + e.getMessage());
 			return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
 		}
 	}
 
 	@PostMapping("/answers/{answerId}/vote-up")
-	public ResponseEntity<Void> voteUpAnswer(@PathVariable UUID answerId, HttpServletRequest request) {
+	public ResponseEntity<Map<String, Object>> voteUpAnswer(@PathVariable UUID answerId, HttpServletRequest request) {
 		return voteAnswer(answerId, true, request);
 	}
 
 	@PostMapping("/answers/{answerId}/vote-down")
-	public ResponseEntity<Void> voteDownAnswer(@PathVariable UUID answerId, HttpServletRequest request) {
+	public ResponseEntity<Map<String, Object>> voteDownAnswer(@PathVariable UUID answerId, HttpServletRequest request) {
 		return voteAnswer(answerId, false, request);
 	}
 
-	private ResponseEntity<Void> voteAnswer(UUID answerId, boolean upVote, HttpServletRequest request) {
+	private ResponseEntity<Map<String, Object>> voteAnswer(UUID answerId, boolean upVote, HttpServletRequest request) {
 		try {
-			Authentication auth = (Authentication) request.getAttribute("auth");
-			UUID userId = (UUID) auth.getPrincipal();
+			String token = extractTokenFromRequest(request);
+			if (token == null || token.isEmpty()) {
+				return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+			}
+			
+			String email = jwtService.parse(token).getSubject();
+			User user = userRepository.findByEmail(email).orElseThrow(() -> 
+				new RuntimeException("User not found: " + email));
 			
 			Answer answer = answerRepository.findById(answerId).orElse(null);
 			if (answer == null) {
@@ -328,34 +445,67 @@ public class AskHubController {
 			}
 			
 			// Don't allow voting on own answers
-			if (answer.getUserId().equals(userId)) {
+			if (answer.getUserId().equals(user.getId())) {
 				return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
 			}
 			
-			if (upVote) {
-				answer.setVotesUp(answer.getVotesUp() + 1);
-			} else {
-				answer.setVotesDown(answer.getVotesDown() + 1);
-			}
-			
-			answerRepository.save(answer);
-			return ResponseEntity.ok().build();
+			// Same vote again withdraws it, the opposite vote switches it
+			AnswerVoteService.VoteResult result = answerVoteService.toggle(answerId, user.getId(), upVote);
+			Map<String, Object> response = new HashMap<>();
+			response.put("votesUp", result.votesUp());
+			response.put("votesDown", result.votesDown());
+			response.put("userVote", result.userVote());
+			return ResponseEntity.ok(response);
 			
 		} catch (Exception e) {
+			System.err.println("Failed to vote on answer " + answerId + ": " + e.getMessage());
 			return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
 		}
 	}
 
 	@GetMapping("/questions/course/{courseCode}")
-	public ResponseEntity<List<Question>> getQuestionsByCourse(@PathVariable String courseCode) {
-		List<Question> questions = questionRepository.findByCourseCodeOrderByCreatedAtDesc(courseCode);
-		return ResponseEntity.ok(questions);
+	public ResponseEntity<?> getQuestionsByCourse(
+			@PathVariable String courseCode,
+			@RequestParam(defaultValue = "20") int size,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "false") boolean includeTotal) {
+		return listQuestions(cursor, size,
+				limit -> questionRepository.findByCourse(courseCode, limit),
+				(after, limit) -> questionRepository.findByCourseAfter(courseCode, after.createdAt(), after.id(), limit),
+				includeTotal ? () -> questionRepository.countByCourseCode(courseCode) : null);
 	}
 
 	@GetMapping("/questions/user/{userId}")
-	public ResponseEntity<List<Question>> getUserQuestions(@PathVariable UUID userId) {
-		List<Question> questions = questionRepository.findByUserIdOrderByCreatedAtDesc(userId);
-		return ResponseEntity.ok(questions);
+	public ResponseEntity<?> getUserQuestions(
+			@PathVariable UUID userId,
+			@RequestParam(defaultValue = "20") int size,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "false") boolean includeTotal) {
+		return listQuestions(cursor, size,
+				limit -> questionRepository.findByUser(userId, limit),
+				(after, limit) -> questionRepository.findByUserAfter(userId, after.createdAt(), after.id(), limit),
+				includeTotal ? () -> questionRepository.countByUserId(userId) : null);
+	}
+
+	/**
+	 * One keyset page of a question list view, newest first. totalQuery is null unless the caller
+	 * asked for a total.
+	 */
+	private ResponseEntity<?> listQuestions(String cursor, int size,
+			Function<Pageable, List<QuestionListItem>> firstPage,
+			BiFunction<KeysetCursor, Pageable, List<QuestionListItem>> nextPage,
+			Supplier<Long> totalQuery) {
+		KeysetCursor after;
+		try {
+			after = KeysetCursor.decode(cursor);
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+		}
+		int limit = Math.max(1, Math.min(size, 100));
+		Pageable fetch = PageRequest.of(0, limit + 1);
+		List<QuestionListItem> rows = after == null ? firstPage.apply(fetch) : nextPage.apply(after, fetch);
+		return ResponseEntity.ok(CursorPage.of(rows, limit, q -> KeysetCursor.of(q.getCreatedAt(), q.getId()),
+				totalQuery != null ? totalQuery.get() : null));
 	}
 
 	@GetMapping("/images/**")
@@ -0,0 +1,81 @@
+package com.ffenf.app.askhub;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind view counts for AskHub questions.
+ *
+ * Views are added to a per-question LongAdder, so GET /askhub/questions/{id} never writes to
+ * the database and concurrent viewers don't contend. A scheduled flush applies the collected
+ * deltas in one JDBC batch of relative updates; a failed flush puts its deltas back.
+ */
+@Component
+public class QuestionViewCounter {
+
+    private static final String FLUSH_SQL = "UPDATE questions SET views_count = views_count + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbc;
+    private final ConcurrentHashMap<UUID, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public QuestionViewCounter(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public void recordView(UUID questionId) {
+        // Increment under the entry's lock, so flush can't drop the counter between lookup and increment
+        pending.compute(questionId, (id, views) -> {
+            LongAdder counter = views != null ? views : new LongAdder();
+            counter.increment();
+            return counter;
+        });
+    }
+
+    /**
+     * Views recorded for the question but not yet flushed, to add to the stored count when displaying it.
+     */
+    public long pendingViews(UUID questionId) {
+        LongAdder views = pending.get(questionId);
+        return views != null ? views.sum() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.askhub.views.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<UUID, LongAdder> entry : pending.entrySet()) {
+            long views = entry.getValue().sumThenReset();
+            if (views == 0) {
+                // Idle since the last flush: drop the counter unless a view arrived meanwhile
+                pending.computeIfPresent(entry.getKey(), (id, counter) -> counter.sum() == 0 ? null : counter);
+            } else {
+                batch.add(new Object[] { views, entry.getKey() });
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbc.batchUpdate(FLUSH_SQL, batch);
+        } catch (Exception e) {
+            System.err.println("Failed to flush " + batch.size() + " question view count(s), will retry: " + e.getMessage());
+            for (Object[] row : batch) {
+                pending.computeIfAbsent((UUID) row[1], id -> new LongAdder()).add((Long) row[0]);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,32 @@
+package com.ffenf.app.config;
+
+import java.sql.Connection;
+
+import javax.sql.DataSource;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Which database the app is running on, for queries that only PostgreSQL supports
+ * (full-text search, trigram matching). The H2 dev fallback gets plain LIKE queries instead.
+ */
+@Component
+public class DatabaseInfo {
+
+    private final boolean postgres;
+
+    public DatabaseInfo(DataSource dataSource) {
+        boolean detected = false;
+        try (Connection connection = dataSource.getConnection()) {
+            detected = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres");
+        } catch (Exception e) {
+            System.err.println("Could not detect database product, assuming no PostgreSQL features: " + e.getMessage());
+        }
+        this.postgres = detected;
+        System.out.println("Database supports PostgreSQL search features: " + postgres);
+    }
+
+    public boolean isPostgres() {
+        return postgres;
+    }
+}
@@ -10,6 +10,15 @@ public class OpenAiConfig {
     private String key;
     private int timeout = 120000; // 2 minutes
     private int maxRetries = 3;
+    private long runTimeout = 300000; // 5 minutes for a whole assistant run
+    private long pollInitialDelay = 300;
+    private long pollMaxDelay = 5000;
+    private double pollMultiplier = 1.5;
+    private boolean streamRuns = false;
+    private String baseUrl = "https://api.openai.com/v1";
+    private String generationMode = "assistants"; // assistants (file_search) or text (chat/completions)
+    private String chatModel = "gpt-4o";
+    private int chunkChars = 24000; // extracted text per chat/completions request
     
     public String getKey() {
         return key;
@@ -35,7 +44,90 @@ public class OpenAiConfig {
         this.maxRetries = maxRetries;
     }
     
-    public boolean isConfigured() {
+    public long getRunTimeout() {
+        return runTimeout;
+    }
+    
+    public void setRunTimeout(long runTimeout) {
+        this.runTimeout = runTimeout;
+    }
+    
+    public long getPollInitialDelay() {
+        return pollInitialDelay;
+    }
+    
+    public void setPollInitialDelay(long pollInitialDelay) {
+        this.pollInitialDelay = pollInitialDelay;
+    }
+    
+    public long getPollMaxDelay() {
+        return pollMaxDelay;
+    }
+    
+    public void setPollMaxDelay(long pollMaxDelay) {
+        this.pollMaxDelay = pollMaxDelay;
+    }
+    
+    public double getPollMultiplier() {
+        return pollMultiplier;
+    }
+    
+    public void setPollMultiplier(double pollMultiplier) {
+        this.pollMultiplier = pollMultiplier;
+    }
+    
+    public boolean isStreamRuns() {
+        return streamRuns;
+    }
+    
+    public void setStreamRuns(boolean streamRuns) {
+        this.streamRuns = streamRuns;
+    }
+    
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+    
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+    
+    public String getGenerationMode() {
+        return generationMode;
+    }
+    
+    public void setGenerationMode(String generationMode) {
+        this.generationMode = generationMode;
+    }
+    
+    public boolean isTextMode() {
+        return "text".equalsIgnoreCase(generationMode);
+    }
+    
+    public String getChatModel() {
+        return chatModel;
+    }
+    
+    public void setChatModel(String chatModel) {
+        this.chatModel = chatModel;
+    }
+    
+    public int getChunkChars() {
+        return chunkChars;
+    }
+    
+    public void setChunkChars(int chunkChars) {
+        this.chunkChars = chunkChars;
+    }
+    
+    public boolean hasKey() {
         return key != null && !key.trim().isEmpty();
     }
+    
+    /**
+     * A key is required for api.openai.com; a local stand-in endpoint may run without one.
+     */
+    public boolean isConfigured() {
+        return hasKey() || (baseUrl != null && !baseUrl.contains("api.openai.com"));
+    }
 }
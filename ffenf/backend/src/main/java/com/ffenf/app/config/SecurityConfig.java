@@ -29,6 +29,7 @@ public class SecurityConfig {
 				.requestMatchers("/auth/**").permitAll()
 					.requestMatchers("/health").permitAll()
 					.requestMatchers("/actuator/health", "/actuator/info").permitAll()
+					.requestMatchers("/actuator/metrics/**").authenticated()  // Run timings and pool stats are not public
                 .requestMatchers("/materials/search").permitAll()
                 .requestMatchers("/materials/upload").permitAll()
                 .requestMatchers("/materials/upload-new").permitAll()
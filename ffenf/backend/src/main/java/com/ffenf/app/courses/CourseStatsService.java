@@ -0,0 +1,79 @@
+package com.ffenf.app.courses;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.ffenf.app.repo.CourseRepository;
+
+/**
+ * Keeps the per-course aggregates in the courses table current as materials, reviews and
+ * questions come in. Each event is one atomic upsert in its own transaction; a failure is
+ * logged rather than failing or aborting the request that triggered it, and the periodic reconcile recomputes the counts from
+ * the source tables so a missed or concurrently overwritten event only skews them until the next run.
+ */
+@Service
+public class CourseStatsService {
+
+    private final CourseRepository courses;
+
+    public CourseStatsService(CourseRepository courses) {
+        this.courses = courses;
+    }
+
+    public void materialAdded(String courseCode) {
+        if (isBlank(courseCode)) {
+            return;
+        }
+        try {
+            courses.incrementMaterialCount(courseCode);
+        } catch (Exception e) {
+            System.err.println("Failed to update course stats for " + courseCode + ": " + e.getMessage());
+        }
+    }
+
+    public void questionAdded(String courseCode) {
+        if (isBlank(courseCode)) {
+            return;
+        }
+        try {
+            courses.incrementQuestionCount(courseCode);
+        } catch (Exception e) {
+            System.err.println("Failed to update course stats for " + courseCode + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * previousRating is null for a first review, otherwise the rating being replaced.
+     */
+    public void reviewSaved(String courseCode, Integer previousRating, int rating) {
+        if (isBlank(courseCode)) {
+            return;
+        }
+        try {
+            if (previousRating == null) {
+                courses.addRating(courseCode, rating, 1);
+            } else if (previousRating != rating) {
+                courses.addRating(courseCode, rating - previousRating, 0);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to update course stats for " + courseCode + ": " + e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.courses.reconcile-interval-ms:3600000}",
+        fixedDelayString = "${app.courses.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        try {
+            int corrected = courses.reconcileCounts() + courses.clearEmptyCourses();
+            if (corrected > 0) {
+                System.out.println("Reconciled course stats: corrected " + corrected + " courses");
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to reconcile course stats: " + e.getMessage());
+        }
+    }
+
+    private static boolean isBlank(String courseCode) {
+        return courseCode == null || courseCode.isBlank();
+    }
+}
@@ -33,6 +33,9 @@ public class AiJob {
 	@Column(columnDefinition = "TEXT")
 	private String error;
 
+	@Column(nullable = false)
+	private int attempts = 0; // times claimed by a worker
+
 	@Column(name = "created_at", nullable = false)
 	private Instant createdAt;
 
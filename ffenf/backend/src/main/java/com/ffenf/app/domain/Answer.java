@@ -42,10 +42,11 @@ public class Answer {
 	@Column(name = "is_accepted", nullable = false)
 	private boolean isAccepted = false;
 
-	@Column(name = "votes_up", nullable = false)
+	// Vote counters are only changed by AnswerVoteService's relative updates, never by entity saves
+	@Column(name = "votes_up", nullable = false, updatable = false)
 	private int votesUp = 0;
 
-	@Column(name = "votes_down", nullable = false)
+	@Column(name = "votes_down", nullable = false, updatable = false)
 	private int votesDown = 0;
 
 	@Column(name = "created_at", nullable = false)
@@ -0,0 +1,59 @@
+package com.ffenf.app.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "content_blobs")
+@Getter
+@Setter
+@NoArgsConstructor
+public class ContentBlob {
+
+	@Id
+	@Column(length = 64)
+	private String sha256;
+
+	@Column(name = "storage_key", nullable = false, length = 512)
+	private String storageKey;
+
+	@Column(name = "file_size", nullable = false)
+	private long fileSize;
+
+	@Column(name = "mime_type", length = 128)
+	private String mimeType;
+
+	@Column(name = "openai_file_id", length = 128)
+	private String openaiFileId;
+
+	@Column(name = "text_extract", columnDefinition = "TEXT")
+	private String textExtract;
+
+	@Column(columnDefinition = "TEXT")
+	private String summary;
+
+	@Column(name = "flashcards_json", columnDefinition = "TEXT")
+	private String flashcardsJson;
+
+	@Column(name = "created_at", nullable = false)
+	private Instant createdAt;
+
+	@Column(name = "updated_at", nullable = false)
+	private Instant updatedAt;
+
+	@PrePersist
+	void prePersist() {
+		Instant now = Instant.now();
+		createdAt = now;
+		updatedAt = now;
+	}
+
+	@PreUpdate
+	void preUpdate() {
+		updatedAt = Instant.now();
+	}
+}
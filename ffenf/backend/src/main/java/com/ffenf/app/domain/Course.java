@@ -0,0 +1,43 @@
+package com.ffenf.app.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Aggregates for one course code. Rows are created and updated with atomic upserts in
+ * CourseRepository, never through entity saves.
+ */
+@Entity
+@Table(name = "courses")
+@Getter
+@Setter
+@NoArgsConstructor
+public class Course {
+
+	@Id
+	@Column(name = "course_code", length = 64)
+	private String courseCode;
+
+	@Column(name = "material_count", nullable = false)
+	private int materialCount;
+
+	@Column(name = "question_count", nullable = false)
+	private int questionCount;
+
+	@Column(name = "ratings_count", nullable = false)
+	private int ratingsCount;
+
+	@Column(name = "ratings_sum", nullable = false)
+	private long ratingsSum;
+
+	@Column(name = "last_activity_at", nullable = false)
+	private Instant lastActivityAt;
+
+	public double getAvgRating() {
+		return ratingsCount > 0 ? (double) ratingsSum / ratingsCount : 0;
+	}
+}
@@ -42,26 +42,39 @@ public class Material {
 	@Column(name = "mime_type", length = 128)
 	private String mimeType;
 
-	@Column(name = "text_extract", columnDefinition = "TEXT")
-	private String textExtract;
+	@Column(name = "content_hash", length = 64)
+	private String contentHash; // content_blobs.sha256
 
-	@Column(columnDefinition = "TEXT")
-	private String summary;
+	// Extracted text, summary and flashcards live in material_content (MaterialContent)
 
-	@Column(name = "flashcards_json", columnDefinition = "TEXT")
-	private String flashcardsJson;
+	@Column(name = "openai_file_id", length = 128)
+	private String openaiFileId;
 
-	@Column(name = "avg_rating", nullable = false)
+	// Rating columns are only written by MaterialRepository.applyRatingDelta, so saving a stale
+	// entity can't overwrite a concurrent review
+	@Column(name = "avg_rating", nullable = false, updatable = false)
 	private double avgRating = 0;
 
-	@Column(name = "ratings_count", nullable = false)
+	@Column(name = "ratings_count", nullable = false, updatable = false)
 	private int ratingsCount = 0;
 
+	@Column(name = "ratings_sum", nullable = false, updatable = false)
+	private long ratingsSum = 0;
+
 	@Column(name = "downloads_count", nullable = false)
 	private int downloadsCount = 0;
 
 	@Column(nullable = false, length = 32)
-	private String status;
+	private String status; // uploaded, ingesting, indexed, ingest_failed
+
+	@Column(name = "ingest_attempts", nullable = false)
+	private int ingestAttempts = 0;
+
+	@Column(name = "next_ingest_at")
+	private Instant nextIngestAt;
+
+	@Column(name = "ingest_error", columnDefinition = "TEXT")
+	private String ingestError;
 
 	@Column(name = "created_at", nullable = false)
 	private Instant createdAt;
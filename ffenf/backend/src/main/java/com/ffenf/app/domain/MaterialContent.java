@@ -0,0 +1,47 @@
+package com.ffenf.app.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Large per-material text (PDF text layer and AI output), kept out of the materials row so
+ * that listing and searching materials never reads it. Loaded explicitly by material id.
+ */
+@Entity
+@Table(name = "material_content")
+@Getter
+@Setter
+@NoArgsConstructor
+public class MaterialContent {
+
+	@Id
+	@Column(name = "material_id")
+	private UUID materialId;
+
+	@Column(name = "text_extract", columnDefinition = "TEXT")
+	private String textExtract;
+
+	@Column(columnDefinition = "TEXT")
+	private String summary;
+
+	@Column(name = "flashcards_json", columnDefinition = "TEXT")
+	private String flashcardsJson;
+
+	@Column(name = "updated_at", nullable = false)
+	private Instant updatedAt;
+
+	public MaterialContent(UUID materialId) {
+		this.materialId = materialId;
+	}
+
+	@PrePersist
+	@PreUpdate
+	void touch() {
+		updatedAt = Instant.now();
+	}
+}
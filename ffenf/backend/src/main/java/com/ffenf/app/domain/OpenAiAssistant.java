@@ -0,0 +1,44 @@
+package com.ffenf.app.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "openai_assistants")
+@Getter
+@Setter
+@NoArgsConstructor
+public class OpenAiAssistant {
+
+	@Id
+	@Column(length = 64)
+	private String profile; // summary, flashcards
+
+	@Column(name = "config_hash", nullable = false, length = 64)
+	private String configHash;
+
+	@Column(name = "assistant_id", nullable = false, length = 128)
+	private String assistantId;
+
+	@Column(name = "created_at", nullable = false)
+	private Instant createdAt;
+
+	@Column(name = "updated_at", nullable = false)
+	private Instant updatedAt;
+
+	@PrePersist
+	void prePersist() {
+		Instant now = Instant.now();
+		createdAt = now;
+		updatedAt = now;
+	}
+
+	@PreUpdate
+	void preUpdate() {
+		updatedAt = Instant.now();
+	}
+}
@@ -54,7 +54,8 @@ public class Question {
 	@Column(name = "answers_count", nullable = false)
 	private int answersCount = 0;
 
-	@Column(name = "views_count", nullable = false)
+	// Only written by QuestionViewCounter's relative updates, never by entity saves
+	@Column(name = "views_count", nullable = false, updatable = false)
 	private int viewsCount = 0;
 
 	@Column(name = "priority", length = 32)
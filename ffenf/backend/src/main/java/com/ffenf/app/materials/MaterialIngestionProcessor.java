@@ -0,0 +1,163 @@
+package com.ffenf.app.materials;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.ffenf.app.ai.OpenAiFileService;
+import com.ffenf.app.ai.PdfProcessingService;
+import com.ffenf.app.config.OpenAiConfig;
+import com.ffenf.app.domain.ContentBlob;
+import com.ffenf.app.domain.Material;
+import com.ffenf.app.domain.MaterialContent;
+import com.ffenf.app.repo.ContentBlobRepository;
+import com.ffenf.app.repo.MaterialContentRepository;
+import com.ffenf.app.repo.MaterialRepository;
+import com.ffenf.app.storage.FileStorageService;
+
+/**
+ * Ingests one claimed material: extracts its text with PDFBox and, in assistants mode,
+ * pushes the stored PDF to OpenAI and records the file id.
+ *
+ * Failures are retried with exponential backoff (app.materials.ingest.retry-base-delay-ms)
+ * until app.materials.ingest.max-attempts, after which the material is left as ingest_failed.
+ */
+@Service
+public class MaterialIngestionProcessor {
+
+    private final MaterialRepository materials;
+    private final MaterialContentRepository materialContents;
+    private final ContentBlobRepository contentBlobs;
+    private final FileStorageService fileStorageService;
+    private final OpenAiFileService openAiFileService;
+    private final PdfProcessingService pdfProcessingService;
+    private final OpenAiConfig openAiConfig;
+    private final int maxAttempts;
+    private final long retryBaseDelayMs;
+
+    public MaterialIngestionProcessor(MaterialRepository materials, MaterialContentRepository materialContents,
+                                      ContentBlobRepository contentBlobs,
+                                      FileStorageService fileStorageService, OpenAiFileService openAiFileService,
+                                      PdfProcessingService pdfProcessingService, OpenAiConfig openAiConfig,
+                                      @Value("${app.materials.ingest.max-attempts:5}") int maxAttempts,
+                                      @Value("${app.materials.ingest.retry-base-delay-ms:30000}") long retryBaseDelayMs) {
+        this.materials = materials;
+        this.materialContents = materialContents;
+        this.contentBlobs = contentBlobs;
+        this.fileStorageService = fileStorageService;
+        this.openAiFileService = openAiFileService;
+        this.pdfProcessingService = pdfProcessingService;
+        this.openAiConfig = openAiConfig;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBaseDelayMs = retryBaseDelayMs;
+    }
+
+    public void ingest(UUID materialId) {
+        Material material = materials.findById(materialId).orElse(null);
+        if (material == null) {
+            System.err.println("Material disappeared before ingestion: " + materialId);
+            return;
+        }
+
+        ContentBlob blob = material.getContentHash() != null
+            ? contentBlobs.findById(material.getContentHash()).orElse(null)
+            : null;
+
+        try {
+            Path filePath = fileStorageService.getFilePath(material.getStorageKey());
+
+            // Extracted text feeds text-mode generation; identical content shares it through the blob
+            MaterialContent content = materialContents.findOrNew(materialId);
+            if (content.getTextExtract() == null) {
+                String text = blob != null ? blob.getTextExtract() : null;
+                if (text == null) {
+                    text = extractText(materialId, filePath);
+                }
+                if (text != null) {
+                    content.setTextExtract(text);
+                    materialContents.save(content);
+                }
+                if (blob != null && blob.getTextExtract() == null && text != null) {
+                    blob.setTextExtract(text);
+                    contentBlobs.save(blob);
+                }
+            }
+
+            // The Assistants API path needs the PDF itself uploaded to OpenAI
+            if (!openAiConfig.isTextMode()) {
+                String openaiFileId = blob != null && blob.getOpenaiFileId() != null
+                    ? blob.getOpenaiFileId()
+                    : material.getOpenaiFileId();
+
+                if (openaiFileId == null) {
+                    if (!Files.exists(filePath)) {
+                        throw new RuntimeException("Stored file not found: " + material.getStorageKey());
+                    }
+                    openaiFileId = openAiFileService.uploadPdfToOpenAI(filePath.toFile());
+                    System.out.println("Ingested material " + materialId + " as OpenAI file " + openaiFileId);
+                } else {
+                    System.out.println("Material " + materialId + " already has OpenAI file " + openaiFileId);
+                }
+
+                if (blob != null && blob.getOpenaiFileId() == null) {
+                    blob.setOpenaiFileId(openaiFileId);
+                    contentBlobs.save(blob);
+                }
+                material.setOpenaiFileId(openaiFileId);
+            }
+
+            material.setStatus("indexed");
+            material.setIngestError(null);
+            material.setNextIngestAt(null);
+            materials.save(material);
+
+        } catch (Exception e) {
+            int attempts = material.getIngestAttempts() + 1;
+            material.setIngestAttempts(attempts);
+            material.setIngestError(e.getMessage());
+            if (attempts >= maxAttempts) {
+                material.setStatus("ingest_failed");
+                material.setNextIngestAt(null);
+                System.err.println("Giving up ingesting material " + materialId + " after " + attempts + " attempt(s): " + e.getMessage());
+            } else {
+                long delay = retryBaseDelayMs * (1L << Math.min(attempts - 1, 10));
+                material.setStatus("uploaded");
+                material.setNextIngestAt(Instant.now().plusMillis(delay));
+                System.err.println("Ingestion of material " + materialId + " failed (attempt " + attempts + "), retrying in "
+                        + delay + "ms: " + e.getMessage());
+            }
+            materials.save(material);
+        }
+    }
+
+    /**
+     * Text is required in text generation mode; otherwise a PDF without a text layer is fine.
+     */
+    private String extractText(UUID materialId, Path filePath) throws IOException {
+        String text = null;
+        try {
+            if (!Files.exists(filePath)) {
+                throw new IOException("Stored file not found: " + filePath.getFileName());
+            }
+            text = pdfProcessingService.extractTextFromPdf(filePath.toFile());
+        } catch (IOException e) {
+            if (openAiConfig.isTextMode()) {
+                throw e;
+            }
+            System.err.println("Text extraction failed for material " + materialId + ": " + e.getMessage());
+        }
+
+        if (text == null || text.isBlank()) {
+            if (openAiConfig.isTextMode()) {
+                throw new RuntimeException("No extractable text in PDF (scanned document?)");
+            }
+            return null;
+        }
+        return text;
+    }
+}
@@ -0,0 +1,101 @@
+package com.ffenf.app.materials;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ffenf.app.repo.MaterialRepository;
+import com.ffenf.app.worker.LeasedDispatcher;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Background ingestion stage for uploaded materials.
+ *
+ * The upload endpoint only stores the file and saves the material as "uploaded"; this
+ * worker claims such materials with a conditional status update and hands them to
+ * {@link MaterialIngestionProcessor} on virtual threads, bounded by a fixed number of slots.
+ *
+ * Claims are leases renewed every heartbeat-interval-ms while ingestion runs. A material whose
+ * lease lapsed counts as a failed attempt and is retried, or left as ingest_failed after
+ * max-attempts.
+ */
+@Component
+public class MaterialIngestionWorker {
+
+    private final MaterialRepository materials;
+    private final LeasedDispatcher<UUID> dispatcher;
+    private final long staleAfterMs;
+    private final int maxAttempts;
+
+    public MaterialIngestionWorker(MaterialRepository materials, MaterialIngestionProcessor processor,
+                                   @Value("${app.materials.ingest.concurrency:2}") int concurrency,
+                                   @Value("${app.materials.ingest.stale-after-ms:600000}") long staleAfterMs,
+                                   @Value("${app.materials.ingest.max-attempts:5}") int maxAttempts) {
+        this.materials = materials;
+        this.staleAfterMs = staleAfterMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.dispatcher = new LeasedDispatcher<>("ingest", concurrency, new LeasedDispatcher.WorkSource<>() {
+            @Override
+            public List<UUID> findCandidates(int limit) {
+                return materials.findIngestCandidates(Instant.now(), PageRequest.of(0, limit));
+            }
+
+            @Override
+            public boolean claim(UUID id) {
+                return materials.claimForIngestion(id, Instant.now()) > 0;
+            }
+
+            @Override
+            public void renewLeases(Set<UUID> ids) {
+                materials.renewIngestionLeases(ids, Instant.now());
+            }
+        }, processor::ingest);
+    }
+
+    /**
+     * Nudge the dispatcher right after an upload instead of waiting for the next poll.
+     */
+    public void wakeUp() {
+        dispatcher.wakeUp();
+    }
+
+    @Scheduled(fixedDelayString = "${app.materials.ingest.poll-interval-ms:2000}")
+    public void poll() {
+        dispatcher.dispatch();
+    }
+
+    @Scheduled(fixedDelayString = "${app.materials.ingest.heartbeat-interval-ms:60000}")
+    public void renewLeases() {
+        dispatcher.renewLeases();
+    }
+
+    /**
+     * Materials whose lease lapsed (crashed or redeployed instance) are retried, or given up on
+     * once they have used up their attempts.
+     */
+    @Scheduled(fixedDelayString = "${app.materials.ingest.stale-check-interval-ms:60000}")
+    public void requeueStaleIngestion() {
+        try {
+            Instant before = Instant.now().minusMillis(staleAfterMs);
+            int failed = materials.failStaleIngestion(before, maxAttempts);
+            int requeued = materials.requeueStaleIngestion(before, maxAttempts);
+            if (failed > 0 || requeued > 0) {
+                System.out.println("Ingestion worker requeued " + requeued + " and failed " + failed + " stale material(s)");
+            }
+        } catch (Exception e) {
+            System.err.println("Ingestion worker failed to requeue stale materials: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+}
@@ -3,13 +3,21 @@ package com.ffenf.app.materials;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -28,14 +36,23 @@ import org.springframework.security.core.Authentication;
 
 import jakarta.servlet.http.HttpServletRequest;
 
-import com.ffenf.app.ai.OpenAiFileService;
+import com.ffenf.app.config.DatabaseInfo;
+import com.ffenf.app.courses.CourseStatsService;
 import com.ffenf.app.domain.CoinTransaction;
+import com.ffenf.app.domain.ContentBlob;
 import com.ffenf.app.domain.Material;
+import com.ffenf.app.domain.MaterialContent;
 import com.ffenf.app.domain.User;
+import com.ffenf.app.paging.CursorPage;
+import com.ffenf.app.paging.KeysetCursor;
 import com.ffenf.app.repo.CoinTransactionRepository;
+import com.ffenf.app.repo.ContentBlobRepository;
 import com.ffenf.app.repo.MaterialBookmarkRepository;
+import com.ffenf.app.repo.MaterialContentRepository;
 import com.ffenf.app.repo.MaterialRepository;
 import com.ffenf.app.repo.UserRepository;
+import com.ffenf.app.search.LuceneSearchIndex;
+import com.ffenf.app.search.TrigramSearchService;
 import com.ffenf.app.storage.FileStorageService;
 
 
@@ -44,19 +61,31 @@ import com.ffenf.app.storage.FileStorageService;
 public class MaterialsController {
 
     private final MaterialRepository materials;
+    private final MaterialContentRepository materialContents;
     private final UserRepository users;
     private final CoinTransactionRepository coinTransactions;
     private final MaterialBookmarkRepository materialBookmarks;
+    private final ContentBlobRepository contentBlobs;
     private final FileStorageService fileStorageService;
-    private final OpenAiFileService openAiFileService;
+    private final MaterialIngestionWorker ingestionWorker;
+    private final DatabaseInfo databaseInfo;
+    private final TrigramSearchService trigramSearch;
+    private final ObjectProvider<LuceneSearchIndex> searchIndex;
+    private final CourseStatsService courseStats;
 
-    public MaterialsController(MaterialRepository materials, UserRepository users, CoinTransactionRepository coinTransactions, MaterialBookmarkRepository materialBookmarks, FileStorageService fileStorageService, OpenAiFileService openAiFileService) {
+    public MaterialsController(MaterialRepository materials, MaterialContentRepository materialContents, UserRepository users, CoinTransactionRepository coinTransactions, MaterialBookmarkRepository materialBookmarks, ContentBlobRepository contentBlobs, FileStorageService fileStorageService, MaterialIngestionWorker ingestionWorker, DatabaseInfo databaseInfo, TrigramSearchService trigramSearch, ObjectProvider<LuceneSearchIndex> searchIndex, CourseStatsService courseStats) {
         this.materials = materials;
+        this.materialContents = materialContents;
+        this.contentBlobs = contentBlobs;
         this.users = users;
         this.coinTransactions = coinTransactions;
         this.materialBookmarks = materialBookmarks;
         this.fileStorageService = fileStorageService;
-        this.openAiFileService = openAiFileService;
+        this.ingestionWorker = ingestionWorker;
+        this.databaseInfo = databaseInfo;
+        this.trigramSearch = trigramSearch;
+        this.searchIndex = searchIndex;
+        this.courseStats = courseStats;
     }
 
     public record SearchRequest(String q, String subject, String courseCode, int page, int size) {}
@@ -154,11 +183,11 @@ public class MaterialsController {
                 return ResponseEntity.badRequest().body(Map.of("error", "File size exceeds 100MB limit"));
             }
 
-            // Store the file locally first (more reliable than OpenAI)
-            String storageKey;
+            // Store the file locally, named by its content hash; OpenAI ingestion happens in the background
+            FileStorageService.StoredContent stored;
             try {
-                storageKey = fileStorageService.storeFile(file);
-                System.out.println("File stored locally with key: " + storageKey);
+                stored = fileStorageService.storeContentAddressed(file);
+                System.out.println("File stored locally with key: " + stored.storageKey() + (stored.created() ? "" : " (existing content)"));
             } catch (Exception e) {
                 System.err.println("Failed to store file locally: " + e.getMessage());
                 e.printStackTrace();
@@ -167,16 +196,17 @@ public class MaterialsController {
                     "message", "Unable to store file: " + e.getMessage()
                 ));
             }
-            
-            // Upload PDF to OpenAI and get file ID (optional, don't fail if this fails)
-            String openaiFileId = null;
-            try {
-                openaiFileId = openAiFileService.uploadPdfToOpenAI(file);
-                System.out.println("PDF uploaded to OpenAI with file ID: " + openaiFileId);
-            } catch (Exception e) {
-                System.err.println("Failed to upload PDF to OpenAI (continuing without AI features): " + e.getMessage());
-                // Don't fail the entire upload if OpenAI fails
-                openaiFileId = "openai_failed_" + System.currentTimeMillis();
+            String storageKey = stored.storageKey();
+
+            // Identical content uploaded before shares its blob: OpenAI file and cached AI output
+            ContentBlob blob = contentBlobs.findById(stored.sha256()).orElse(null);
+            boolean newBlob = blob == null;
+            if (newBlob) {
+                blob = new ContentBlob();
+                blob.setSha256(stored.sha256());
+                blob.setStorageKey(storageKey);
+                blob.setFileSize(stored.size());
+                blob.setMimeType(file.getContentType());
             }
 
             // Create and save material
@@ -187,23 +217,30 @@ public class MaterialsController {
             material.setCourseCode(courseCode);
             material.setTags(tags != null ? String.join(",", tags) : "");
             material.setStorageKey(storageKey);
+            material.setContentHash(stored.sha256());
             material.setFileSize(file.getSize());
             material.setMimeType(file.getContentType());
+            // Pushed to OpenAI by the background ingestion worker; identical content carries over
+            // whatever was already extracted/uploaded so ingestion only has to confirm it
             material.setStatus("uploaded");
-            material.setTextExtract(openaiFileId); // Store OpenAI file ID instead of extracted text
+            material.setOpenaiFileId(blob.getOpenaiFileId());
 
             Material savedMaterial;
             try {
+                saveBlob(blob, newBlob);
                 savedMaterial = materials.save(material);
                 System.out.println("Material saved with ID: " + savedMaterial.getId());
             } catch (Exception e) {
                 System.err.println("Failed to save material to database: " + e.getMessage());
                 e.printStackTrace();
-                // Clean up stored file if database save fails
-                try {
-                    fileStorageService.deleteFile(storageKey);
-                } catch (Exception cleanupException) {
-                    System.err.println("Failed to cleanup file after database error: " + cleanupException.getMessage());
+                // Clean up stored file if database save fails, unless other materials already share it
+                if (stored.created() && newBlob) {
+                    try {
+                        contentBlobs.deleteById(stored.sha256());
+                        fileStorageService.deleteFile(storageKey);
+                    } catch (Exception cleanupException) {
+                        System.err.println("Failed to cleanup file after database error: " + cleanupException.getMessage());
+                    }
                 }
                 return ResponseEntity.status(500).body(Map.of(
                     "error", "Database save failed",
@@ -211,6 +248,20 @@ public class MaterialsController {
                 ));
             }
 
+            // Carry over text and AI output already produced for identical content
+            if (blob.getTextExtract() != null || blob.getSummary() != null || blob.getFlashcardsJson() != null) {
+                try {
+                    MaterialContent content = new MaterialContent(savedMaterial.getId());
+                    content.setTextExtract(blob.getTextExtract());
+                    content.setSummary(blob.getSummary());
+                    content.setFlashcardsJson(blob.getFlashcardsJson());
+                    materialContents.save(content);
+                } catch (Exception e) {
+                    // Not fatal: ingestion extracts the text again
+                    System.err.println("Failed to copy cached content to material " + savedMaterial.getId() + ": " + e.getMessage());
+                }
+            }
+
             // Reward user with a coin for uploading
             try {
                 currentUser.setCoins(currentUser.getCoins() + 1);
@@ -229,6 +280,10 @@ public class MaterialsController {
                 // Don't fail the upload if coin reward fails
             }
 
+            ingestionWorker.wakeUp();
+            searchIndex.ifAvailable(index -> index.indexMaterial(savedMaterial));
+            courseStats.materialAdded(savedMaterial.getCourseCode());
+
             System.out.println("=== UPLOAD SUCCESS ===");
             return ResponseEntity.ok(savedMaterial);
         } catch (Exception e) {
@@ -252,8 +307,15 @@ public class MaterialsController {
                                    @RequestParam(defaultValue = "20") int size,
                                    @RequestParam(defaultValue = "avgRating") String sortBy,
                                    @RequestParam(defaultValue = "desc") String sortDir,
+                                   @RequestParam(defaultValue = "false") boolean fuzzy,
+                                   @RequestParam(required = false) String cursor,
+                                   @RequestParam(defaultValue = "false") boolean includeTotal,
                                    Authentication auth) {
         
+        if (cursor != null) {
+            return searchByCursor(q, sortBy, sortDir, cursor, size, includeTotal, auth);
+        }
+
         try {
             System.out.println("Search request - q: " + q + ", subject: " + subject + ", courseCode: " + courseCode + ", page: " + page + ", size: " + size + ", sortBy: " + sortBy + ", sortDir: " + sortDir);
             
@@ -283,13 +345,38 @@ public class MaterialsController {
             Pageable pageable = PageRequest.of(page, size, sort);
             
             Page<Material> results;
+            LuceneSearchIndex.Result indexResult = null;
+            LuceneSearchIndex luceneIndex = searchIndex.getIfAvailable();
             
-            if (q.isEmpty() && subject == null && courseCode == null) {
+            if (luceneIndex != null && !fuzzy && LuceneSearchIndex.supportsMaterialSort(sortBy)) {
+                // Served from the embedded index; rows are then fetched by primary key in one query
+                System.out.println("Index searching with query: " + q);
+                indexResult = luceneIndex.searchMaterials(q, subject, courseCode, sortBy, "desc".equalsIgnoreCase(sortDir), page, size);
+                Map<UUID, Material> byId = materials.findAllById(indexResult.ids()).stream()
+                    .collect(Collectors.toMap(Material::getId, Function.identity()));
+                List<Material> ordered = indexResult.ids().stream().map(byId::get).filter(Objects::nonNull).toList();
+                results = new PageImpl<>(ordered, PageRequest.of(page, size), indexResult.totalHits());
+            } else if (q.isEmpty() && subject == null && courseCode == null) {
                 System.out.println("Searching all materials");
                 results = materials.findAll(pageable);
             } else {
-                // Simple search - in production, use full-text search
-                if (!q.isEmpty()) {
+                if (!q.isEmpty() && databaseInfo.isPostgres()) {
+                    Pageable nativePageable = PageRequest.of(page, size, nativeSearchSort(sortBy, sortDir));
+                    if (fuzzy) {
+                        System.out.println("Fuzzy searching with query: " + q);
+                        results = trigramSearch.searchMaterials(q, nativePageable);
+                    } else {
+                        // Full-text search on the GIN-indexed search_vector, ranked by relevance
+                        System.out.println("Full-text searching with query: " + q);
+                        results = materials.searchFullText(q, nativePageable);
+                        if (results.getTotalElements() == 0) {
+                            // Nothing matched word-for-word: likely a typo or a spaced course code like "coa 123"
+                            System.out.println("No full-text matches, retrying as fuzzy search: " + q);
+                            results = trigramSearch.searchMaterials(q, nativePageable);
+                        }
+                    }
+                } else if (!q.isEmpty()) {
+                    // Substring fallback for databases without full-text search (H2 in dev)
                     System.out.println("Searching with query: " + q);
                     results = materials.findByTitleContainingIgnoreCaseOrSubjectContainingIgnoreCaseOrCourseCodeContainingIgnoreCase(
                         q, q, q, pageable);
@@ -299,55 +386,21 @@ public class MaterialsController {
                 }
             }
 
-        List<Map<String, Object>> materialsList = results.getContent().stream()
-            .map(m -> {
-                Map<String, Object> map = new java.util.HashMap<>();
-                map.put("id", m.getId());
-                map.put("title", m.getTitle());
-                map.put("subject", m.getSubject() != null ? m.getSubject() : "");
-                map.put("courseCode", m.getCourseCode() != null ? m.getCourseCode() : "");
-                map.put("avgRating", m.getAvgRating());
-                map.put("ratingsCount", m.getRatingsCount());
-                map.put("downloadsCount", m.getDownloadsCount());
-                map.put("createdAt", m.getCreatedAt());
-                
-                // Add user information
-                User user = users.findById(m.getUserId()).orElse(null);
-                if (user != null) {
-                    map.put("user", Map.of(
-                        "id", user.getId(),
-                        "name", user.getName()
-                    ));
-                } else {
-                    map.put("user", Map.of(
-                        "id", m.getUserId(),
-                        "name", "Unknown User"
-                    ));
-                }
-                
-                // Add bookmark status
-                if (auth != null) {
-                    String email = auth.getName();
-                    User currentUser = users.findByEmail(email).orElse(null);
-                    if (currentUser != null) {
-                        boolean isBookmarked = materialBookmarks.existsByUserIdAndMaterialId(currentUser.getId(), m.getId());
-                        map.put("isBookmarked", isBookmarked);
-                    } else {
-                        map.put("isBookmarked", false);
-                    }
-                } else {
-                    map.put("isBookmarked", false);
-                }
-                
-                return map;
-            })
-            .toList();
+        Map<UUID, String> highlights = new HashMap<>();
+        if (indexResult != null) {
+            indexResult.hits().forEach(hit -> highlights.put(hit.id(), hit.highlight()));
+        }
+
+        List<Map<String, Object>> materialsList = toSearchItems(results.getContent(), highlights, auth);
 
         Map<String, Object> response = new java.util.HashMap<>();
         response.put("materials", materialsList);
         response.put("totalElements", results.getTotalElements());
         response.put("totalPages", results.getTotalPages());
         response.put("currentPage", page);
+        if (indexResult != null) {
+            response.put("facets", indexResult.facets());
+        }
         return ResponseEntity.ok(response);
         
         } catch (Exception e) {
@@ -377,8 +430,9 @@ public class MaterialsController {
         response.put("avgRating", material.getAvgRating());
         response.put("ratingsCount", material.getRatingsCount());
         response.put("downloadsCount", material.getDownloadsCount());
-        response.put("summary", material.getSummary() != null ? material.getSummary() : "");
-        response.put("flashcardsJson", material.getFlashcardsJson() != null ? material.getFlashcardsJson() : "");
+        MaterialContent content = materialContents.findById(id).orElse(null);
+        response.put("summary", content != null && content.getSummary() != null ? content.getSummary() : "");
+        response.put("flashcardsJson", content != null && content.getFlashcardsJson() != null ? content.getFlashcardsJson() : "");
         response.put("createdAt", material.getCreatedAt());
         
         // Check if material is bookmarked by current user
@@ -446,6 +500,141 @@ public class MaterialsController {
         }
     }
     
+    /**
+     * Persist the blob row; a concurrent upload of the same content may have inserted it first.
+     */
+    private void saveBlob(ContentBlob blob, boolean newBlob) {
+        if (!newBlob) {
+            contentBlobs.save(blob);
+            return;
+        }
+        try {
+            contentBlobs.saveAndFlush(blob);
+        } catch (DataIntegrityViolationException e) {
+            System.out.println("Content blob " + blob.getSha256() + " was created concurrently, reusing it");
+        }
+    }
+
+    /**
+     * Keyset-paginated browse feed for /materials/search?cursor=... (empty cursor = first page).
+     * Pages seek past the previous page's last (avg_rating, created_at, id) or (created_at, id)
+     * instead of using OFFSET, and the total is only counted when includeTotal=true.
+     */
+    private ResponseEntity<?> searchByCursor(String q, String sortBy, String sortDir, String cursor, int size,
+                                             boolean includeTotal, Authentication auth) {
+        boolean byRating = "avgRating".equals(sortBy);
+        if (!q.isEmpty() || !(byRating || "createdAt".equals(sortBy)) || !"desc".equalsIgnoreCase(sortDir)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Cursor paging is only available for browsing without a query, sorted by avgRating or createdAt descending"
+            ));
+        }
+
+        KeysetCursor after;
+        try {
+            after = KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        int limit = Math.max(1, Math.min(size, 100));
+        List<Material> rows;
+        if (byRating) {
+            rows = after == null || after.rating() == null
+                ? materials.findTopRated(limit + 1)
+                : materials.findTopRatedAfter(after.rating(), after.createdAt(), after.id(), limit + 1);
+        } else {
+            rows = after == null
+                ? materials.findNewest(limit + 1)
+                : materials.findNewestAfter(after.createdAt(), after.id(), limit + 1);
+        }
+
+        CursorPage<Material> result = CursorPage.of(rows, limit,
+            m -> byRating ? KeysetCursor.of(m.getAvgRating(), m.getCreatedAt(), m.getId()) : KeysetCursor.of(m.getCreatedAt(), m.getId()),
+            includeTotal ? materials.count() : null);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("materials", toSearchItems(result.content(), Map.of(), auth));
+        response.put("nextCursor", result.nextCursor());
+        response.put("hasNext", result.hasNext());
+        if (result.totalElements() != null) {
+            response.put("totalElements", result.totalElements());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Search result rows, with uploader names and the caller's bookmark flags resolved once per page.
+     */
+    private List<Map<String, Object>> toSearchItems(List<Material> page, Map<UUID, String> highlights, Authentication auth) {
+        Set<UUID> materialIds = page.stream().map(Material::getId).collect(Collectors.toSet());
+        Set<UUID> uploaderIds = page.stream().map(Material::getUserId).collect(Collectors.toSet());
+        Map<UUID, String> uploaderNames = new HashMap<>();
+        if (!uploaderIds.isEmpty()) {
+            users.findNamesByIdIn(uploaderIds).forEach(u -> uploaderNames.put(u.getId(), u.getName()));
+        }
+        Set<UUID> bookmarkedIds = new HashSet<>();
+        if (auth != null && !materialIds.isEmpty()) {
+            users.findByEmail(auth.getName()).ifPresent(currentUser ->
+                bookmarkedIds.addAll(materialBookmarks.findBookmarkedMaterialIds(currentUser.getId(), materialIds)));
+        }
+
+        return page.stream()
+            .map(m -> {
+                Map<String, Object> map = new java.util.HashMap<>();
+                map.put("id", m.getId());
+                map.put("title", m.getTitle());
+                map.put("subject", m.getSubject() != null ? m.getSubject() : "");
+                map.put("courseCode", m.getCourseCode() != null ? m.getCourseCode() : "");
+                map.put("avgRating", m.getAvgRating());
+                map.put("ratingsCount", m.getRatingsCount());
+                map.put("downloadsCount", m.getDownloadsCount());
+                map.put("createdAt", m.getCreatedAt());
+                
+                // Add user information
+                if (uploaderNames.containsKey(m.getUserId())) {
+                    Map<String, Object> user = new HashMap<>();
+                    user.put("id", m.getUserId());
+                    user.put("name", uploaderNames.get(m.getUserId()));
+                    map.put("user", user);
+                } else {
+                    map.put("user", Map.of(
+                        "id", m.getUserId(),
+                        "name", "Unknown User"
+                    ));
+                }
+                
+                // Add bookmark status
+                map.put("isBookmarked", bookmarkedIds.contains(m.getId()));
+                if (highlights.get(m.getId()) != null) {
+                    map.put("highlight", highlights.get(m.getId()));
+                }
+                
+                return map;
+            })
+            .toList();
+    }
+
+    /**
+     * Sort for the native full-text query: column names instead of entity properties, with
+     * relevance ("rank") as the primary key for sortBy=relevance and the tie-breaker otherwise.
+     */
+    private Sort nativeSearchSort(String sortBy, String sortDir) {
+        Sort byRank = Sort.by(Sort.Direction.DESC, "rank");
+        if ("relevance".equals(sortBy)) {
+            return byRank.and(Sort.by(Sort.Direction.DESC, "created_at"));
+        }
+        String column = switch (validateSortField(sortBy)) {
+            case "downloadsCount" -> "downloads_count";
+            case "createdAt" -> "created_at";
+            case "courseCode" -> "course_code";
+            case "ratingsCount" -> "ratings_count";
+            case "title", "subject" -> sortBy;
+            default -> "avg_rating";
+        };
+        Sort.Direction direction = "desc".equalsIgnoreCase(sortDir) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return Sort.by(direction, column).and(byRank);
+    }
+
     private String validateSortField(String sortBy) {
         // Map frontend field names to actual entity field names
         switch (sortBy) {
@@ -0,0 +1,24 @@
+package com.ffenf.app.paging;
+
+import java.util.List;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One keyset page. nextCursor is null on the last page; totalElements is only filled when the
+ * caller asked for it (includeTotal=true), since the count is the expensive part.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record CursorPage<T>(List<T> content, String nextCursor, boolean hasNext, Long totalElements) {
+
+    /**
+     * Build a page from a query that fetched one row more than requested to detect a next page.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, Function<T, KeysetCursor> cursorOf, Long totalElements) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(content.get(content.size() - 1)).encode() : null;
+        return new CursorPage<>(content, nextCursor, hasNext, totalElements);
+    }
+}
@@ -0,0 +1,53 @@
+package com.ffenf.app.paging;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of the last row of a keyset (seek) page: the sort key values plus the id tie-breaker.
+ *
+ * Clients only see the opaque {@link #encode() token}; the next page starts strictly after it,
+ * so deep pages cost the same as the first one. rating is null for feeds ordered by
+ * (created_at, id) alone.
+ */
+public record KeysetCursor(Double rating, Instant createdAt, UUID id) {
+
+    private static final String VERSION = "v1";
+
+    public static KeysetCursor of(Instant createdAt, UUID id) {
+        return new KeysetCursor(null, createdAt, id);
+    }
+
+    public static KeysetCursor of(double rating, Instant createdAt, UUID id) {
+        return new KeysetCursor(rating, createdAt, id);
+    }
+
+    /**
+     * Decode a token from {@link #encode()}. A null or blank token means "first page" and returns null.
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 4 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Unsupported cursor");
+            }
+            Double rating = parts[1].isEmpty() ? null : Double.valueOf(parts[1]);
+            return new KeysetCursor(rating, Instant.parse(parts[2]), UUID.fromString(parts[3]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+    }
+
+    public String encode() {
+        // Instant.toString keeps full precision, so rows sharing a millisecond aren't skipped
+        String raw = VERSION + "|" + (rating != null ? rating : "") + "|" + createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
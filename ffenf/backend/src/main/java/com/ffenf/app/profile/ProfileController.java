@@ -1,8 +1,10 @@
 package com.ffenf.app.profile;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -22,13 +24,16 @@ import org.springframework.web.bind.annotation.RestController;
 import com.ffenf.app.domain.CourseBookmark;
 import com.ffenf.app.domain.Material;
 import com.ffenf.app.domain.MaterialBookmark;
-import com.ffenf.app.domain.Review;
 import com.ffenf.app.domain.User;
+import com.ffenf.app.paging.CursorPage;
+import com.ffenf.app.paging.KeysetCursor;
 import com.ffenf.app.repo.AnswerRepository;
 import com.ffenf.app.repo.CourseBookmarkRepository;
 import com.ffenf.app.repo.MaterialBookmarkRepository;
 import com.ffenf.app.repo.MaterialRepository;
+import com.ffenf.app.repo.MaterialRepository.MaterialListItem;
 import com.ffenf.app.repo.ReviewRepository;
+import com.ffenf.app.repo.ReviewRepository.UserReviewItem;
 import com.ffenf.app.repo.UserRepository;
 
 @RestController
@@ -76,28 +81,41 @@ public class ProfileController {
     @GetMapping("/my-uploads")
     public ResponseEntity<?> getMyUploads(Authentication auth,
                                          @RequestParam(defaultValue = "0") int page,
-                                         @RequestParam(defaultValue = "10") int size) {
+                                         @RequestParam(defaultValue = "10") int size,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "false") boolean includeTotal) {
         String email = auth.getName();
         User user = users.findByEmail(email).orElseThrow();
 
+        if (cursor != null) {
+            // Keyset paging: seek past the last (created_at, id) instead of OFFSET, count only on request
+            KeysetCursor after;
+            try {
+                after = KeysetCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+            int limit = Math.max(1, Math.min(size, 100));
+            List<Material> rows = after == null
+                ? materials.findNewestByUser(user.getId(), limit + 1)
+                : materials.findNewestByUserAfter(user.getId(), after.createdAt(), after.id(), limit + 1);
+            CursorPage<Material> result = CursorPage.of(rows, limit, m -> KeysetCursor.of(m.getCreatedAt(), m.getId()),
+                includeTotal ? materials.countByUserId(user.getId()) : null);
+
+            Map<String, Object> response = new java.util.HashMap<>();
+            response.put("materials", result.content().stream().map(MaterialListItem::of).map(this::toUploadItem).toList());
+            response.put("nextCursor", result.nextCursor());
+            response.put("hasNext", result.hasNext());
+            if (result.totalElements() != null) {
+                response.put("totalElements", result.totalElements());
+            }
+            return ResponseEntity.ok(response);
+        }
+
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<Material> userMaterials = materials.findByUserId(user.getId(), pageable);
+        Page<MaterialListItem> userMaterials = materials.findListItemsByUserId(user.getId(), pageable);
 
-        List<Map<String, Object>> materialsList = userMaterials.getContent().stream()
-            .map(m -> {
-                Map<String, Object> map = new java.util.HashMap<>();
-                map.put("id", m.getId());
-                map.put("title", m.getTitle());
-                map.put("subject", m.getSubject() != null ? m.getSubject() : "");
-                map.put("courseCode", m.getCourseCode() != null ? m.getCourseCode() : "");
-                map.put("avgRating", m.getAvgRating());
-                map.put("ratingsCount", m.getRatingsCount());
-                map.put("downloadsCount", m.getDownloadsCount());
-                map.put("status", m.getStatus());
-                map.put("createdAt", m.getCreatedAt());
-                return map;
-            })
-            .toList();
+        List<Map<String, Object>> materialsList = userMaterials.getContent().stream().map(this::toUploadItem).toList();
 
         Map<String, Object> response = new java.util.HashMap<>();
         response.put("materials", materialsList);
@@ -107,6 +125,20 @@ public class ProfileController {
         return ResponseEntity.ok(response);
     }
 
+    private Map<String, Object> toUploadItem(MaterialListItem m) {
+        Map<String, Object> map = new java.util.HashMap<>();
+        map.put("id", m.id());
+        map.put("title", m.title());
+        map.put("subject", m.subject() != null ? m.subject() : "");
+        map.put("courseCode", m.courseCode() != null ? m.courseCode() : "");
+        map.put("avgRating", m.avgRating());
+        map.put("ratingsCount", m.ratingsCount());
+        map.put("downloadsCount", m.downloadsCount());
+        map.put("status", m.status());
+        map.put("createdAt", m.createdAt());
+        return map;
+    }
+
     @GetMapping("/my-reviews")
     public ResponseEntity<?> getMyReviews(Authentication auth,
                                         @RequestParam(defaultValue = "0") int page,
@@ -114,16 +146,17 @@ public class ProfileController {
         String email = auth.getName();
         User user = users.findByEmail(email).orElseThrow();
 
-        List<Review> userReviews = reviews.findByUserId(user.getId());
+        // One page of the user's reviews with material titles joined in
+        Page<UserReviewItem> userReviews = reviews.findItemsByUserId(user.getId(),
+            PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, 100))));
 
-        List<Map<String, Object>> reviewsList = userReviews.stream()
+        List<Map<String, Object>> reviewsList = userReviews.getContent().stream()
             .map(r -> {
-                Material material = materials.findById(r.getMaterialId()).orElse(null);
                 Map<String, Object> map = new java.util.HashMap<>();
                 map.put("id", r.getId());
                 map.put("rating", r.getRating());
                 map.put("comment", r.getComment() != null ? r.getComment() : "");
-                map.put("materialTitle", material != null ? material.getTitle() : "Unknown Material");
+                map.put("materialTitle", r.getMaterialTitle() != null ? r.getMaterialTitle() : "Unknown Material");
                 map.put("materialId", r.getMaterialId());
                 map.put("createdAt", r.getCreatedAt());
                 return map;
@@ -132,7 +165,9 @@ public class ProfileController {
 
         Map<String, Object> response = new java.util.HashMap<>();
         response.put("reviews", reviewsList);
-        response.put("totalReviews", reviewsList.size());
+        response.put("totalReviews", userReviews.getTotalElements());
+        response.put("totalPages", userReviews.getTotalPages());
+        response.put("currentPage", page);
         return ResponseEntity.ok(response);
     }
 
@@ -143,10 +178,7 @@ public class ProfileController {
 
         long totalUploads = materials.countByUserId(user.getId());
         long totalReviews = reviews.countByUserId(user.getId());
-        long totalDownloads = materials.findByUserId(user.getId(), Pageable.unpaged())
-            .getContent().stream()
-            .mapToLong(Material::getDownloadsCount)
-            .sum();
+        long totalDownloads = materials.sumDownloadsByUserId(user.getId());
 
         Map<String, Object> response = new java.util.HashMap<>();
         response.put("coins", user.getCoins());
@@ -161,23 +193,18 @@ public class ProfileController {
         String email = auth.getName();
         User user = users.findByEmail(email).orElseThrow();
 
-        // Get all bookmarked courses for the user
-        List<CourseBookmark> bookmarks = courseBookmarks.findByUserId(user.getId());
-        
-        List<CourseSummaryResponse> courses = bookmarks.stream()
-            .map(bookmark -> {
+        // Bookmarks joined with the courses aggregate table, already ordered by course code
+        List<CourseSummaryResponse> courses = courseBookmarks.findBookmarkedCourses(user.getId()).stream()
+            .map(row -> {
                 CourseSummaryResponse course = new CourseSummaryResponse();
-                course.setCourseCode(bookmark.getCourseCode());
-                
-                // Count total materials for this course code across all users
-                long materialCount = materials.findAll().stream()
-                    .filter(material -> bookmark.getCourseCode().equals(material.getCourseCode()))
-                    .count();
-                
-                course.setTotalMaterials((int) materialCount);
+                course.setCourseCode(row.getCourseCode());
+                course.setTotalMaterials(row.getMaterialCount() != null ? row.getMaterialCount() : 0);
+                course.setTotalQuestions(row.getQuestionCount() != null ? row.getQuestionCount() : 0);
+                int ratingsCount = row.getRatingsCount() != null ? row.getRatingsCount() : 0;
+                course.setAvgRating(ratingsCount > 0 ? (double) row.getRatingsSum() / ratingsCount : 0);
+                course.setLastActivityAt(row.getLastActivityAt());
                 return course;
             })
-            .sorted((a, b) -> a.getCourseCode().compareTo(b.getCourseCode()))
             .collect(Collectors.toList());
 
         return ResponseEntity.ok(courses);
@@ -243,10 +270,17 @@ public class ProfileController {
         // Get bookmarked materials for this course
         List<MaterialBookmark> bookmarkedMaterials = materialBookmarks.findByUserIdAndMaterialCourseCode(user.getId(), courseCode);
         
-        // Get all materials for this course code (recommended)
-        List<Material> allCourseMaterials = materials.findAll().stream()
-            .filter(material -> courseCode.equals(material.getCourseCode()))
-            .collect(Collectors.toList());
+        // Other materials for this course code (recommended), filtered and ordered in the database
+        List<Material> recommendedMaterials = materials.findByCourseCodeNotBookmarkedBy(courseCode, user.getId());
+
+        // Uploader names for both lists in one query
+        Set<UUID> uploaderIds = new HashSet<>();
+        bookmarkedMaterials.forEach(mb -> uploaderIds.add(mb.getMaterial().getUserId()));
+        recommendedMaterials.forEach(m -> uploaderIds.add(m.getUserId()));
+        Map<UUID, String> uploaderNames = new java.util.HashMap<>();
+        if (!uploaderIds.isEmpty()) {
+            users.findNamesByIdIn(uploaderIds).forEach(u -> uploaderNames.put(u.getId(), u.getName()));
+        }
 
         // Separate bookmarked and recommended materials
         List<Map<String, Object>> bookmarkedMaterialsList = bookmarkedMaterials.stream()
@@ -264,25 +298,18 @@ public class ProfileController {
                 map.put("isBookmarked", true);
                 map.put("bookmarkedAt", mb.getCreatedAt());
                 
-                // Fetch user details
-                users.findById(m.getUserId()).ifPresent(materialUser -> {
+                if (uploaderNames.containsKey(m.getUserId())) {
                     map.put("user", Map.of(
-                        "id", materialUser.getId(),
-                        "name", materialUser.getName()
+                        "id", m.getUserId(),
+                        "name", uploaderNames.get(m.getUserId())
                     ));
-                });
+                }
                 
                 return map;
             })
             .toList();
 
-        // Get recommended materials (not bookmarked by user)
-        List<UUID> bookmarkedMaterialIds = bookmarkedMaterials.stream()
-            .map(mb -> mb.getMaterial().getId())
-            .collect(Collectors.toList());
-
-        List<Map<String, Object>> recommendedMaterialsList = allCourseMaterials.stream()
-            .filter(material -> !bookmarkedMaterialIds.contains(material.getId()))
+        List<Map<String, Object>> recommendedMaterialsList = recommendedMaterials.stream()
             .map(m -> {
                 Map<String, Object> map = new java.util.HashMap<>();
                 map.put("id", m.getId());
@@ -295,13 +322,12 @@ public class ProfileController {
                 map.put("createdAt", m.getCreatedAt());
                 map.put("isBookmarked", false);
                 
-                // Fetch user details
-                users.findById(m.getUserId()).ifPresent(materialUser -> {
+                if (uploaderNames.containsKey(m.getUserId())) {
                     map.put("user", Map.of(
-                        "id", materialUser.getId(),
-                        "name", materialUser.getName()
+                        "id", m.getUserId(),
+                        "name", uploaderNames.get(m.getUserId())
                     ));
-                });
+                }
                 
                 return map;
             })
@@ -421,6 +447,9 @@ public class ProfileController {
     public static class CourseSummaryResponse {
         private String courseCode;
         private int totalMaterials;
+        private int totalQuestions;
+        private double avgRating;
+        private java.time.Instant lastActivityAt;
 
         public String getCourseCode() {
             return courseCode;
@@ -437,6 +466,30 @@ public class ProfileController {
         public void setTotalMaterials(int totalMaterials) {
             this.totalMaterials = totalMaterials;
         }
+
+        public int getTotalQuestions() {
+            return totalQuestions;
+        }
+
+        public void setTotalQuestions(int totalQuestions) {
+            this.totalQuestions = totalQuestions;
+        }
+
+        public double getAvgRating() {
+            return avgRating;
+        }
+
+        public void setAvgRating(double avgRating) {
+            this.avgRating = avgRating;
+        }
+
+        public java.time.Instant getLastActivityAt() {
+            return lastActivityAt;
+        }
+
+        public void setLastActivityAt(java.time.Instant lastActivityAt) {
+            this.lastActivityAt = lastActivityAt;
+        }
     }
 
 }
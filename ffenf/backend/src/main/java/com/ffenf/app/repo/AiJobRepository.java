@@ -1,12 +1,48 @@
 package com.ffenf.app.repo;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.ffenf.app.domain.AiJob;
 
 public interface AiJobRepository extends JpaRepository<AiJob, UUID> {
     Optional<AiJob> findByMaterialIdAndTypeAndStatus(UUID materialId, String type, String status);
+
+    List<AiJob> findByStatusOrderByCreatedAtAsc(String status, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AiJob j SET j.status = 'running', j.attempts = j.attempts + 1, j.updatedAt = :now "
+            + "WHERE j.id = :id AND j.status = 'queued'")
+    int claimQueuedJob(@Param("id") UUID id, @Param("now") Instant now);
+
+    /**
+     * Heartbeat for jobs this instance is still running, so the stale sweep leaves them alone.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE AiJob j SET j.updatedAt = :now WHERE j.id IN :ids AND j.status = 'running'")
+    int renewLeases(@Param("ids") Collection<UUID> ids, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AiJob j SET j.status = 'failed', j.error = 'Worker stopped responding on every attempt' "
+            + "WHERE j.status = 'running' AND j.updatedAt < :before AND j.attempts >= :maxAttempts")
+    int failStaleJobs(@Param("before") Instant before, @Param("maxAttempts") int maxAttempts);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AiJob j SET j.status = 'queued' WHERE j.status = 'running' AND j.updatedAt < :before "
+            + "AND j.attempts < :maxAttempts")
+    int requeueStaleJobs(@Param("before") Instant before, @Param("maxAttempts") int maxAttempts);
 }
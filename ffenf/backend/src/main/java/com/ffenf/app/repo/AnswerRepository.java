@@ -6,9 +6,11 @@ import java.util.UUID;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.ffenf.app.domain.Answer;
 
@@ -35,4 +37,68 @@ public interface AnswerRepository extends JpaRepository<Answer, UUID> {
 	long countByQuestionId(UUID questionId);
 
 	long countByUserId(UUID userId);
+
+	/**
+	 * Mark answerId as the question's only accepted answer and resolve the question, in one
+	 * transaction. Rolls back if the answer doesn't belong to the question.
+	 *
+	 * The question row is updated first so concurrent accepts on the same question queue on
+	 * its row lock; the previous answer is cleared before the new one is set because the
+	 * partial unique index uq_answers_one_accepted is checked row by row.
+	 */
+	@Transactional
+	default void acceptAnswer(UUID questionId, UUID answerId) {
+		resolveQuestion(questionId);
+		clearOtherAcceptedAnswers(questionId, answerId);
+		if (markAccepted(questionId, answerId) == 0) {
+			throw new IllegalArgumentException("Answer " + answerId + " does not belong to question " + questionId);
+		}
+	}
+
+	@Modifying
+	@Query(value = "UPDATE questions SET status = 'RESOLVED', updated_at = CURRENT_TIMESTAMP WHERE id = :questionId",
+			nativeQuery = true)
+	int resolveQuestion(@Param("questionId") UUID questionId);
+
+	@Modifying
+	@Query(value = "UPDATE answers SET is_accepted = FALSE, updated_at = CURRENT_TIMESTAMP "
+			+ "WHERE question_id = :questionId AND is_accepted AND id <> :answerId", nativeQuery = true)
+	int clearOtherAcceptedAnswers(@Param("questionId") UUID questionId, @Param("answerId") UUID answerId);
+
+	@Modifying
+	@Query(value = "UPDATE answers SET is_accepted = TRUE, updated_at = CURRENT_TIMESTAMP "
+			+ "WHERE id = :answerId AND question_id = :questionId", nativeQuery = true)
+	int markAccepted(@Param("questionId") UUID questionId, @Param("answerId") UUID answerId);
+
+	// Per-user votes (answer_votes); callers run these inside one transaction, see AnswerVoteService
+
+	@Modifying
+	@Query(value = "INSERT INTO answer_votes (answer_id, user_id, value) VALUES (:answerId, :userId, :value) "
+			+ "ON CONFLICT (answer_id, user_id) DO NOTHING", nativeQuery = true)
+	int insertVoteIfAbsent(@Param("answerId") UUID answerId, @Param("userId") UUID userId, @Param("value") int value);
+
+	@Query(value = "SELECT CAST(value AS int) FROM answer_votes WHERE answer_id = :answerId AND user_id = :userId FOR UPDATE",
+			nativeQuery = true)
+	Integer lockVote(@Param("answerId") UUID answerId, @Param("userId") UUID userId);
+
+	@Modifying
+	@Query(value = "UPDATE answer_votes SET value = :value WHERE answer_id = :answerId AND user_id = :userId", nativeQuery = true)
+	int updateVote(@Param("answerId") UUID answerId, @Param("userId") UUID userId, @Param("value") int value);
+
+	@Modifying
+	@Query(value = "DELETE FROM answer_votes WHERE answer_id = :answerId AND user_id = :userId", nativeQuery = true)
+	int deleteVote(@Param("answerId") UUID answerId, @Param("userId") UUID userId);
+
+	@Modifying
+	@Query(value = "UPDATE answers SET votes_up = votes_up + :upDelta, votes_down = votes_down + :downDelta WHERE id = :answerId",
+			nativeQuery = true)
+	int applyVoteDelta(@Param("answerId") UUID answerId, @Param("upDelta") int upDelta, @Param("downDelta") int downDelta);
+
+	interface VoteCounts {
+		int getVotesUp();
+		int getVotesDown();
+	}
+
+	@Query("SELECT a.votesUp AS votesUp, a.votesDown AS votesDown FROM Answer a WHERE a.id = :answerId")
+	VoteCounts findVoteCounts(@Param("answerId") UUID answerId);
 }
@@ -0,0 +1,8 @@
+package com.ffenf.app.repo;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.ffenf.app.domain.ContentBlob;
+
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+}
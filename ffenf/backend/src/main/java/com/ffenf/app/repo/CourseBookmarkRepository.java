@@ -5,6 +5,8 @@ import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.ffenf.app.domain.CourseBookmark;
 
@@ -13,4 +15,23 @@ public interface CourseBookmarkRepository extends JpaRepository<CourseBookmark,
     List<CourseBookmark> findByUserId(UUID userId);
     long countByUserId(UUID userId);
     boolean existsByUserIdAndCourseCode(UUID userId, String courseCode);
+
+    interface BookmarkedCourse {
+        String getCourseCode();
+        Integer getMaterialCount();
+        Integer getQuestionCount();
+        Integer getRatingsCount();
+        Long getRatingsSum();
+        java.time.Instant getLastActivityAt();
+    }
+
+    /**
+     * A user's bookmarked courses with their aggregates from the courses table, in one join.
+     * Aggregate columns are null for a course with no activity yet.
+     */
+    @Query("SELECT cb.courseCode AS courseCode, c.materialCount AS materialCount, c.questionCount AS questionCount, "
+            + "c.ratingsCount AS ratingsCount, c.ratingsSum AS ratingsSum, c.lastActivityAt AS lastActivityAt "
+            + "FROM CourseBookmark cb LEFT JOIN Course c ON c.courseCode = cb.courseCode "
+            + "WHERE cb.user.id = :userId ORDER BY cb.courseCode")
+    List<BookmarkedCourse> findBookmarkedCourses(@Param("userId") UUID userId);
 }
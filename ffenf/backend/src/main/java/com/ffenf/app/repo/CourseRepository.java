@@ -0,0 +1,81 @@
+package com.ffenf.app.repo;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ffenf.app.domain.Course;
+
+public interface CourseRepository extends JpaRepository<Course, String> {
+
+    // Per-event upserts run in their own transaction, so a failure never aborts the caller's; see CourseStatsService
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "INSERT INTO courses (course_code, material_count, last_activity_at) VALUES (:courseCode, 1, CURRENT_TIMESTAMP) "
+            + "ON CONFLICT (course_code) DO UPDATE SET material_count = courses.material_count + 1, last_activity_at = CURRENT_TIMESTAMP",
+        nativeQuery = true)
+    int incrementMaterialCount(@Param("courseCode") String courseCode);
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "INSERT INTO courses (course_code, question_count, last_activity_at) VALUES (:courseCode, 1, CURRENT_TIMESTAMP) "
+            + "ON CONFLICT (course_code) DO UPDATE SET question_count = courses.question_count + 1, last_activity_at = CURRENT_TIMESTAMP",
+        nativeQuery = true)
+    int incrementQuestionCount(@Param("courseCode") String courseCode);
+
+    /**
+     * Apply a review to the course rating: a new review adds (rating, 1), a changed one (new - old, 0).
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "INSERT INTO courses (course_code, ratings_sum, ratings_count, last_activity_at) "
+            + "VALUES (:courseCode, :sumDelta, :countDelta, CURRENT_TIMESTAMP) "
+            + "ON CONFLICT (course_code) DO UPDATE SET ratings_sum = courses.ratings_sum + :sumDelta, "
+            + "ratings_count = courses.ratings_count + :countDelta, last_activity_at = CURRENT_TIMESTAMP",
+        nativeQuery = true)
+    int addRating(@Param("courseCode") String courseCode, @Param("sumDelta") long sumDelta, @Param("countDelta") int countDelta);
+
+    /**
+     * Recompute every course's counts from materials, questions and reviews, as the V16 backfill does,
+     * and correct rows that have drifted. Returns the number of rows inserted or corrected.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO courses (course_code, material_count, question_count, ratings_count, ratings_sum, last_activity_at) "
+            + "SELECT course_code, SUM(material_count), SUM(question_count), SUM(ratings_count), SUM(ratings_sum), MAX(last_activity_at) "
+            + "FROM ("
+            + "  SELECT m.course_code, COUNT(*) AS material_count, 0 AS question_count, 0 AS ratings_count, 0 AS ratings_sum, "
+            + "         MAX(m.created_at) AS last_activity_at "
+            + "  FROM materials m GROUP BY m.course_code "
+            + "  UNION ALL "
+            + "  SELECT q.course_code, 0, COUNT(*), 0, 0, MAX(q.created_at) FROM questions q GROUP BY q.course_code "
+            + "  UNION ALL "
+            + "  SELECT m.course_code, 0, 0, COUNT(*), SUM(r.rating), MAX(r.created_at) "
+            + "  FROM reviews r JOIN materials m ON m.id = r.material_id GROUP BY m.course_code"
+            + ") activity "
+            + "WHERE course_code IS NOT NULL AND course_code <> '' "
+            + "GROUP BY course_code "
+            + "ON CONFLICT (course_code) DO UPDATE SET material_count = EXCLUDED.material_count, "
+            + "question_count = EXCLUDED.question_count, ratings_count = EXCLUDED.ratings_count, "
+            + "ratings_sum = EXCLUDED.ratings_sum "
+            + "WHERE (courses.material_count, courses.question_count, courses.ratings_count, courses.ratings_sum) "
+            + "IS DISTINCT FROM (EXCLUDED.material_count, EXCLUDED.question_count, EXCLUDED.ratings_count, EXCLUDED.ratings_sum)",
+        nativeQuery = true)
+    int reconcileCounts();
+
+    /**
+     * Zero the counts of courses that no longer have any materials or questions.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE courses SET material_count = 0, question_count = 0, ratings_count = 0, ratings_sum = 0 "
+            + "WHERE (material_count, question_count, ratings_count, ratings_sum) <> (0, 0, 0, 0) "
+            + "AND NOT EXISTS (SELECT 1 FROM materials m WHERE m.course_code = courses.course_code) "
+            + "AND NOT EXISTS (SELECT 1 FROM questions q WHERE q.course_code = courses.course_code)",
+        nativeQuery = true)
+    int clearEmptyCourses();
+}
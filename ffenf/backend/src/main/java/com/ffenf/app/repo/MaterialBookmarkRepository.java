@@ -1,5 +1,6 @@
 package com.ffenf.app.repo;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,7 +15,10 @@ public interface MaterialBookmarkRepository extends JpaRepository<MaterialBookma
     List<MaterialBookmark> findByUserId(UUID userId);
     Optional<MaterialBookmark> findByUserIdAndMaterialId(UUID userId, UUID materialId);
     boolean existsByUserIdAndMaterialId(UUID userId, UUID materialId);
+
+    @Query("SELECT mb.material.id FROM MaterialBookmark mb WHERE mb.user.id = :userId AND mb.material.id IN :materialIds")
+    List<UUID> findBookmarkedMaterialIds(@Param("userId") UUID userId, @Param("materialIds") Collection<UUID> materialIds);
     
-    @Query("SELECT mb FROM MaterialBookmark mb JOIN mb.material m WHERE mb.user.id = :userId AND m.courseCode = :courseCode")
+    @Query("SELECT mb FROM MaterialBookmark mb JOIN FETCH mb.material m JOIN FETCH mb.user WHERE mb.user.id = :userId AND m.courseCode = :courseCode")
     List<MaterialBookmark> findByUserIdAndMaterialCourseCode(@Param("userId") UUID userId, @Param("courseCode") String courseCode);
 }
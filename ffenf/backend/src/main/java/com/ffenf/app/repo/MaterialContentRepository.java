@@ -0,0 +1,32 @@
+package com.ffenf.app.repo;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.ffenf.app.domain.MaterialContent;
+
+public interface MaterialContentRepository extends JpaRepository<MaterialContent, UUID> {
+
+    interface MaterialSummary {
+        UUID getMaterialId();
+        String getSummary();
+    }
+
+    /**
+     * The content row for a material, or a new unsaved one if nothing has been stored yet.
+     */
+    default MaterialContent findOrNew(UUID materialId) {
+        return findById(materialId).orElseGet(() -> new MaterialContent(materialId));
+    }
+
+    @Query("SELECT c.summary FROM MaterialContent c WHERE c.materialId = :materialId")
+    String findSummaryByMaterialId(@Param("materialId") UUID materialId);
+
+    @Query("SELECT c.materialId AS materialId, c.summary AS summary FROM MaterialContent c WHERE c.materialId IN :materialIds")
+    List<MaterialSummary> findSummariesByMaterialIdIn(@Param("materialIds") Collection<UUID> materialIds);
+}
@@ -1,10 +1,17 @@
 package com.ffenf.app.repo;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.ffenf.app.domain.Material;
 
@@ -12,5 +19,133 @@ public interface MaterialRepository extends JpaRepository<Material, UUID> {
     Page<Material> findByTitleContainingIgnoreCaseOrSubjectContainingIgnoreCaseOrCourseCodeContainingIgnoreCase(
         String title, String subject, String courseCode, Pageable pageable);
     Page<Material> findByUserId(UUID userId, Pageable pageable);
+
+    /**
+     * Row for material list views: only the columns those views show.
+     */
+    record MaterialListItem(UUID id, UUID userId, String title, String subject, String courseCode, double avgRating,
+                            int ratingsCount, int downloadsCount, String status, Instant createdAt) {
+        public static MaterialListItem of(Material m) {
+            return new MaterialListItem(m.getId(), m.getUserId(), m.getTitle(), m.getSubject(), m.getCourseCode(),
+                m.getAvgRating(), m.getRatingsCount(), m.getDownloadsCount(), m.getStatus(), m.getCreatedAt());
+        }
+    }
+
+    Page<MaterialListItem> findListItemsByUserId(UUID userId, Pageable pageable);
+
+    /**
+     * PostgreSQL full-text search over the weighted search_vector column (GIN indexed).
+     * Exposes the relevance as "rank" so callers can sort by it.
+     */
+    @Query(value = "SELECT m.*, ts_rank(m.search_vector, websearch_to_tsquery('english', :q)) AS rank FROM materials m "
+            + "WHERE m.search_vector @@ websearch_to_tsquery('english', :q)",
+        countQuery = "SELECT count(*) FROM materials m WHERE m.search_vector @@ websearch_to_tsquery('english', :q)",
+        nativeQuery = true)
+    Page<Material> searchFullText(@Param("q") String q, Pageable pageable);
+
+    /**
+     * Typo-tolerant trigram search on title and normalised course code (pg_trgm GIN indexes).
+     * Matches use the transaction's pg_trgm.similarity_threshold; relevance is exposed as "rank".
+     */
+    @Query(value = "SELECT m.*, GREATEST(similarity(m.title, :q), "
+            + "similarity(regexp_replace(m.course_code, '[^[:alnum:]]', '', 'g'), :code)) AS rank FROM materials m "
+            + "WHERE m.title % :q OR regexp_replace(m.course_code, '[^[:alnum:]]', '', 'g') % :code",
+        countQuery = "SELECT count(*) FROM materials m "
+            + "WHERE m.title % :q OR regexp_replace(m.course_code, '[^[:alnum:]]', '', 'g') % :code",
+        nativeQuery = true)
+    Page<Material> searchTrigram(@Param("q") String q, @Param("code") String code, Pageable pageable);
+
+    /**
+     * Set pg_trgm.similarity_threshold for the current transaction only.
+     */
+    @Query(value = "SELECT set_config('pg_trgm.similarity_threshold', CAST(:threshold AS text), true)", nativeQuery = true)
+    String setSimilarityThreshold(@Param("threshold") double threshold);
+
     long countByUserId(UUID userId);
+
+    /**
+     * Apply one review to a material's rating in a single statement: a new review adds
+     * (rating, 1), a changed one (new - old, 0). Safe under concurrent reviewers.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE materials SET ratings_sum = ratings_sum + :sumDelta, ratings_count = ratings_count + :countDelta, "
+            + "avg_rating = CASE WHEN ratings_count + :countDelta > 0 "
+            + "THEN CAST(ratings_sum + :sumDelta AS float8) / (ratings_count + :countDelta) ELSE 0 END "
+            + "WHERE id = :id", nativeQuery = true)
+    int applyRatingDelta(@Param("id") UUID id, @Param("sumDelta") long sumDelta, @Param("countDelta") int countDelta);
+
+    /**
+     * A course's materials that the user has not bookmarked, best rated first.
+     */
+    @Query("SELECT m FROM Material m WHERE m.courseCode = :courseCode AND m.id NOT IN "
+            + "(SELECT mb.material.id FROM MaterialBookmark mb WHERE mb.user.id = :userId) "
+            + "ORDER BY m.avgRating DESC, m.createdAt DESC")
+    List<Material> findByCourseCodeNotBookmarkedBy(@Param("courseCode") String courseCode, @Param("userId") UUID userId);
+
+    @Query("SELECT COALESCE(SUM(m.downloadsCount), 0) FROM Material m WHERE m.userId = :userId")
+    long sumDownloadsByUserId(@Param("userId") UUID userId);
+
+    // Keyset (seek) pages: row-value comparisons walk the composite indexes from V13, so a
+    // page costs the same however deep it is. Callers fetch one extra row to detect a next page.
+
+    @Query(value = "SELECT * FROM materials m ORDER BY m.avg_rating DESC, m.created_at DESC, m.id DESC LIMIT :limit",
+        nativeQuery = true)
+    List<Material> findTopRated(@Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM materials m WHERE (m.avg_rating, m.created_at, m.id) < (:rating, :createdAt, :id) "
+            + "ORDER BY m.avg_rating DESC, m.created_at DESC, m.id DESC LIMIT :limit",
+        nativeQuery = true)
+    List<Material> findTopRatedAfter(@Param("rating") double rating, @Param("createdAt") Instant createdAt,
+                                     @Param("id") UUID id, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM materials m ORDER BY m.created_at DESC, m.id DESC LIMIT :limit", nativeQuery = true)
+    List<Material> findNewest(@Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM materials m WHERE (m.created_at, m.id) < (:createdAt, :id) "
+            + "ORDER BY m.created_at DESC, m.id DESC LIMIT :limit",
+        nativeQuery = true)
+    List<Material> findNewestAfter(@Param("createdAt") Instant createdAt, @Param("id") UUID id, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM materials m WHERE m.user_id = :userId ORDER BY m.created_at DESC, m.id DESC LIMIT :limit",
+        nativeQuery = true)
+    List<Material> findNewestByUser(@Param("userId") UUID userId, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM materials m WHERE m.user_id = :userId AND (m.created_at, m.id) < (:createdAt, :id) "
+            + "ORDER BY m.created_at DESC, m.id DESC LIMIT :limit",
+        nativeQuery = true)
+    List<Material> findNewestByUserAfter(@Param("userId") UUID userId, @Param("createdAt") Instant createdAt,
+                                         @Param("id") UUID id, @Param("limit") int limit);
+
+    @Query("SELECT m.id FROM Material m WHERE m.status = 'uploaded' AND (m.nextIngestAt IS NULL OR m.nextIngestAt <= :now) ORDER BY m.createdAt ASC")
+    List<UUID> findIngestCandidates(@Param("now") Instant now, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Material m SET m.status = 'ingesting', m.updatedAt = :now WHERE m.id = :id AND m.status = 'uploaded'")
+    int claimForIngestion(@Param("id") UUID id, @Param("now") Instant now);
+
+    /**
+     * Heartbeat for materials this instance is still ingesting, so the stale sweep leaves them alone.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Material m SET m.updatedAt = :now WHERE m.id IN :ids AND m.status = 'ingesting'")
+    int renewIngestionLeases(@Param("ids") Collection<UUID> ids, @Param("now") Instant now);
+
+    // A lapsed lease counts as a failed attempt
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Material m SET m.status = 'ingest_failed', m.ingestAttempts = m.ingestAttempts + 1, "
+            + "m.ingestError = 'Ingestion worker stopped responding', m.nextIngestAt = NULL "
+            + "WHERE m.status = 'ingesting' AND m.updatedAt < :before AND m.ingestAttempts + 1 >= :maxAttempts")
+    int failStaleIngestion(@Param("before") Instant before, @Param("maxAttempts") int maxAttempts);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Material m SET m.status = 'uploaded', m.ingestAttempts = m.ingestAttempts + 1, "
+            + "m.ingestError = 'Ingestion worker stopped responding' "
+            + "WHERE m.status = 'ingesting' AND m.updatedAt < :before AND m.ingestAttempts + 1 < :maxAttempts")
+    int requeueStaleIngestion(@Param("before") Instant before, @Param("maxAttempts") int maxAttempts);
 }
@@ -0,0 +1,8 @@
+package com.ffenf.app.repo;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.ffenf.app.domain.OpenAiAssistant;
+
+public interface OpenAiAssistantRepository extends JpaRepository<OpenAiAssistant, String> {
+}
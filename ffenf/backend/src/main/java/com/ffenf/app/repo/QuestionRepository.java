@@ -1,5 +1,6 @@
 package com.ffenf.app.repo;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
@@ -15,40 +16,141 @@ import com.ffenf.app.domain.Question;
 @Repository
 public interface QuestionRepository extends JpaRepository<Question, UUID> {
 
-	List<Question> findByUserIdOrderByCreatedAtDesc(UUID userId);
-
-	List<Question> findByCourseCodeOrderByCreatedAtDesc(String courseCode);
-
 	List<Question> findBySubjectOrderByCreatedAtDesc(String subject);
 
 	@Query("SELECT q FROM Question q WHERE q.status = :status ORDER BY q.createdAt DESC")
 	Page<Question> findByStatusOrderByCreatedAtDesc(@Param("status") String status, Pageable pageable);
 
+	// LIKE search for databases without full-text search; callers pass the query lower-cased
+
 	@Query("SELECT q FROM Question q WHERE " +
-			"(LOWER(q.title) LIKE %:query% OR q.description LIKE %:query% OR LOWER(q.tags) LIKE %:query%) " +
+			"(LOWER(q.title) LIKE %:query% OR LOWER(q.description) LIKE %:query% OR LOWER(q.tags) LIKE %:query%) " +
 			"ORDER BY q.createdAt DESC")
 	Page<Question> searchByText(@Param("query") String query, Pageable pageable);
 
 	@Query("SELECT q FROM Question q WHERE " +
-			"(LOWER(q.title) LIKE %:keyword% OR q.description LIKE %:keyword%) " +
+			"(LOWER(q.title) LIKE %:keyword% OR LOWER(q.description) LIKE %:keyword%) " +
 			"ORDER BY q.createdAt DESC")
 	Page<Question> searchByKeyword(@Param("keyword") String keyword, Pageable pageable);
 
 	@Query("SELECT q FROM Question q WHERE " +
 			"q.courseCode = :courseCode AND " +
-			"(LOWER(q.title) LIKE %:keyword% OR q.description LIKE %:keyword%) " +
+			"(LOWER(q.title) LIKE %:keyword% OR LOWER(q.description) LIKE %:keyword% OR LOWER(q.tags) LIKE %:keyword%) " +
 			"ORDER BY q.createdAt DESC")
 	Page<Question> searchByCourseAndKeyword(@Param("courseCode") String courseCode, 
 										   @Param("keyword") String keyword, 
 										   Pageable pageable);
 
+	/**
+	 * Search result row: the list-view columns plus relevance and a highlighted description snippet.
+	 */
+	interface QuestionSearchItem extends QuestionListItem {
+		float getRank();
+		String getHighlight();
+	}
+
+	/**
+	 * PostgreSQL full-text search over the weighted search_vector column (GIN indexed), best match
+	 * first, optionally within one course. The page is picked in the inner query so ts_headline
+	 * only runs on the rows returned.
+	 */
+	@Query(value = "SELECT p.id AS \"id\", p.user_id AS \"userId\", p.title AS \"title\", p.course_code AS \"courseCode\", " +
+			"p.subject AS \"subject\", p.tags AS \"tags\", p.status AS \"status\", p.answers_count AS \"answersCount\", " +
+			"p.views_count AS \"viewsCount\", p.priority AS \"priority\", p.created_at AS \"createdAt\", p.rank AS \"rank\", " +
+			"ts_headline('english', p.description, websearch_to_tsquery('english', :query), " +
+			"'MaxWords=35, MinWords=15, MaxFragments=2') AS \"highlight\" " +
+			"FROM (SELECT q.*, ts_rank(q.search_vector, websearch_to_tsquery('english', :query)) AS rank FROM questions q " +
+			"WHERE q.search_vector @@ websearch_to_tsquery('english', :query) " +
+			"AND (CAST(:courseCode AS text) IS NULL OR q.course_code = :courseCode) " +
+			"ORDER BY rank DESC, q.created_at DESC, q.id DESC LIMIT :limit OFFSET :offset) p " +
+			"ORDER BY p.rank DESC, p.created_at DESC, p.id DESC",
+			nativeQuery = true)
+	List<QuestionSearchItem> searchFullText(@Param("query") String query,
+											@Param("courseCode") String courseCode,
+											@Param("limit") int limit,
+											@Param("offset") long offset);
+
+	@Query(value = "SELECT count(*) FROM questions q WHERE q.search_vector @@ websearch_to_tsquery('english', :query) " +
+			"AND (CAST(:courseCode AS text) IS NULL OR q.course_code = :courseCode)",
+			nativeQuery = true)
+	long countFullText(@Param("query") String query, @Param("courseCode") String courseCode);
+
+	/**
+	 * Typo-tolerant title search (pg_trgm GIN index), most similar first. Course scope is optional.
+	 */
+	@Query(value = "SELECT q.* FROM questions q WHERE q.title % :keyword " +
+			"AND (CAST(:courseCode AS text) IS NULL OR q.course_code = :courseCode) " +
+			"ORDER BY similarity(q.title, :keyword) DESC, q.created_at DESC",
+			countQuery = "SELECT count(*) FROM questions q WHERE q.title % :keyword " +
+			"AND (CAST(:courseCode AS text) IS NULL OR q.course_code = :courseCode)",
+			nativeQuery = true)
+	Page<Question> searchTrigram(@Param("keyword") String keyword,
+								 @Param("courseCode") String courseCode,
+								 Pageable pageable);
+
+	// Keyset (seek) pages over (created_at, id); callers fetch one extra row to detect a next page.
+
+	@Query(value = "SELECT * FROM questions q ORDER BY q.created_at DESC, q.id DESC LIMIT :limit", nativeQuery = true)
+	List<Question> findNewest(@Param("limit") int limit);
+
+	@Query(value = "SELECT * FROM questions q WHERE (q.created_at, q.id) < (:createdAt, :id) " +
+			"ORDER BY q.created_at DESC, q.id DESC LIMIT :limit", nativeQuery = true)
+	List<Question> findNewestAfter(@Param("createdAt") Instant createdAt, @Param("id") UUID id, @Param("limit") int limit);
+
 	List<Question> findByPriorityOrderByCreatedAtDesc(String priority);
 
 	@Query("SELECT q FROM Question q WHERE q.answersCount > 0 ORDER BY q.createdAt DESC")
 	List<Question> findQuestionsWithAnswers();
 
-	@Query("SELECT q FROM Question q WHERE q.answersCount = 0 ORDER BY q.createdAt DESC")
-	List<Question> findUnansweredQuestions();
+	/**
+	 * Row for question list views: everything but the description and image fields.
+	 */
+	interface QuestionListItem {
+		UUID getId();
+		UUID getUserId();
+		String getTitle();
+		String getCourseCode();
+		String getSubject();
+		String getTags();
+		String getStatus();
+		int getAnswersCount();
+		int getViewsCount();
+		String getPriority();
+		Instant getCreatedAt();
+	}
+
+	String LIST_ITEM_SELECT = "SELECT q.id AS id, q.userId AS userId, q.title AS title, q.courseCode AS courseCode, " +
+			"q.subject AS subject, q.tags AS tags, q.status AS status, q.answersCount AS answersCount, " +
+			"q.viewsCount AS viewsCount, q.priority AS priority, q.createdAt AS createdAt FROM Question q ";
+
+	// Keyset list views, newest first; the Pageable only carries the limit (page 0, size + 1)
+
+	@Query(LIST_ITEM_SELECT + "WHERE q.answersCount = 0 ORDER BY q.createdAt DESC, q.id DESC")
+	List<QuestionListItem> findUnanswered(Pageable limit);
+
+	@Query(LIST_ITEM_SELECT + "WHERE q.answersCount = 0 AND (q.createdAt, q.id) < (:createdAt, :id) " +
+			"ORDER BY q.createdAt DESC, q.id DESC")
+	List<QuestionListItem> findUnansweredAfter(@Param("createdAt") Instant createdAt, @Param("id") UUID id, Pageable limit);
+
+	@Query(LIST_ITEM_SELECT + "WHERE q.courseCode = :courseCode ORDER BY q.createdAt DESC, q.id DESC")
+	List<QuestionListItem> findByCourse(@Param("courseCode") String courseCode, Pageable limit);
+
+	@Query(LIST_ITEM_SELECT + "WHERE q.courseCode = :courseCode AND (q.createdAt, q.id) < (:createdAt, :id) " +
+			"ORDER BY q.createdAt DESC, q.id DESC")
+	List<QuestionListItem> findByCourseAfter(@Param("courseCode") String courseCode, @Param("createdAt") Instant createdAt,
+			@Param("id") UUID id, Pageable limit);
+
+	@Query(LIST_ITEM_SELECT + "WHERE q.userId = :userId ORDER BY q.createdAt DESC, q.id DESC")
+	List<QuestionListItem> findByUser(@Param("userId") UUID userId, Pageable limit);
+
+	@Query(LIST_ITEM_SELECT + "WHERE q.userId = :userId AND (q.createdAt, q.id) < (:createdAt, :id) " +
+			"ORDER BY q.createdAt DESC, q.id DESC")
+	List<QuestionListItem> findByUserAfter(@Param("userId") UUID userId, @Param("createdAt") Instant createdAt,
+			@Param("id") UUID id, Pageable limit);
+
+	long countByAnswersCount(int answersCount);
+
+	long countByUserId(UUID userId);
 
 	long countByCourseCode(String courseCode);
 
@@ -1,16 +1,74 @@
 package com.ffenf.app.repo;
 
-import java.util.List;
+import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.ffenf.app.domain.Review;
 
 public interface ReviewRepository extends JpaRepository<Review, UUID> {
     Optional<Review> findByUserIdAndMaterialId(UUID userId, UUID materialId);
-    List<Review> findByMaterialId(UUID materialId);
-    List<Review> findByUserId(UUID userId);
     long countByUserId(UUID userId);
+
+    interface MaterialReviewItem {
+        UUID getId();
+        int getRating();
+        String getComment();
+        String getReviewerName();
+        Instant getCreatedAt();
+    }
+
+    interface UserReviewItem {
+        UUID getId();
+        int getRating();
+        String getComment();
+        UUID getMaterialId();
+        String getMaterialTitle();
+        Instant getCreatedAt();
+    }
+
+    /**
+     * A material's reviews, newest first, with the reviewer's name joined in.
+     */
+    @Query(value = "SELECT r.id AS id, r.rating AS rating, r.comment AS comment, u.name AS reviewerName, r.createdAt AS createdAt "
+            + "FROM Review r LEFT JOIN User u ON u.id = r.userId "
+            + "WHERE r.materialId = :materialId ORDER BY r.createdAt DESC, r.id DESC",
+        countQuery = "SELECT COUNT(r) FROM Review r WHERE r.materialId = :materialId")
+    Page<MaterialReviewItem> findItemsByMaterialId(@Param("materialId") UUID materialId, Pageable pageable);
+
+    /**
+     * A user's reviews, newest first, with the material title joined in.
+     */
+    @Query(value = "SELECT r.id AS id, r.rating AS rating, r.comment AS comment, r.materialId AS materialId, "
+            + "m.title AS materialTitle, r.createdAt AS createdAt "
+            + "FROM Review r LEFT JOIN Material m ON m.id = r.materialId "
+            + "WHERE r.userId = :userId ORDER BY r.createdAt DESC, r.id DESC",
+        countQuery = "SELECT COUNT(r) FROM Review r WHERE r.userId = :userId")
+    Page<UserReviewItem> findItemsByUserId(@Param("userId") UUID userId, Pageable pageable);
+
+    // Review submission; callers run these inside one transaction, see ReviewService
+
+    @Modifying
+    @Query(value = "INSERT INTO reviews (id, user_id, material_id, rating, comment, created_at) "
+            + "VALUES (:id, :userId, :materialId, :rating, :comment, CURRENT_TIMESTAMP) "
+            + "ON CONFLICT (user_id, material_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id, @Param("userId") UUID userId, @Param("materialId") UUID materialId,
+                       @Param("rating") int rating, @Param("comment") String comment);
+
+    @Query(value = "SELECT rating FROM reviews WHERE user_id = :userId AND material_id = :materialId FOR UPDATE",
+        nativeQuery = true)
+    Integer lockRating(@Param("userId") UUID userId, @Param("materialId") UUID materialId);
+
+    @Modifying
+    @Query(value = "UPDATE reviews SET rating = :rating, comment = :comment WHERE user_id = :userId AND material_id = :materialId",
+        nativeQuery = true)
+    int updateReview(@Param("userId") UUID userId, @Param("materialId") UUID materialId,
+                     @Param("rating") int rating, @Param("comment") String comment);
 }
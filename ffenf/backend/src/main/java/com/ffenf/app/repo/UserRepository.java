@@ -2,10 +2,23 @@ package com.ffenf.app.repo;
 
 import com.ffenf.app.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
 	Optional<User> findByEmail(String email);
+
+	/** Id and display name only, for listing uploaders/authors without loading whole users. */
+	interface UserName {
+		UUID getId();
+		String getName();
+	}
+
+	@Query("SELECT u.id AS id, u.name AS name FROM User u WHERE u.id IN :ids")
+	List<UserName> findNamesByIdIn(@Param("ids") Collection<UUID> ids);
 }
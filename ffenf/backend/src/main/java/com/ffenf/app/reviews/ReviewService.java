@@ -0,0 +1,74 @@
+package com.ffenf.app.reviews;
+
+import java.util.UUID;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ffenf.app.courses.CourseStatsService;
+import com.ffenf.app.domain.Material;
+import com.ffenf.app.domain.Review;
+import com.ffenf.app.repo.MaterialRepository;
+import com.ffenf.app.repo.ReviewRepository;
+
+/**
+ * Creates or replaces a user's review of a material. Each user has at most one review per
+ * material (reviews unique key); submitting again replaces the rating and comment.
+ *
+ * The review row change and the material rating delta commit together. An existing review row
+ * is locked first, so concurrent resubmits by the same user see each other's rating and never
+ * apply the same delta twice. The course aggregate is updated once the review has committed;
+ * if that fails, the periodic course stats reconcile corrects it.
+ */
+@Service
+public class ReviewService {
+
+    /**
+     * previousRating is null for a first review, otherwise the rating it replaced.
+     */
+    public record SavedReview(Review review, Integer previousRating) {
+        public boolean ratingChanged() {
+            return previousRating == null || previousRating != review.getRating();
+        }
+    }
+
+    private final ReviewRepository reviews;
+    private final MaterialRepository materials;
+    private final CourseStatsService courseStats;
+
+    public ReviewService(ReviewRepository reviews, MaterialRepository materials, CourseStatsService courseStats) {
+        this.reviews = reviews;
+        this.materials = materials;
+        this.courseStats = courseStats;
+    }
+
+    @Transactional
+    public SavedReview submit(UUID userId, Material material, int rating, String comment) {
+        Integer previousRating = null;
+        if (reviews.insertIfAbsent(UUID.randomUUID(), userId, material.getId(), rating, comment) == 1) {
+            materials.applyRatingDelta(material.getId(), rating, 1);
+        } else {
+            previousRating = reviews.lockRating(userId, material.getId());
+            if (previousRating == null) {
+                // Removed by a concurrent request between the insert and the lock
+                throw new IllegalStateException("Review changed concurrently, please retry");
+            }
+            reviews.updateReview(userId, material.getId(), rating, comment);
+            if (previousRating != rating) {
+                materials.applyRatingDelta(material.getId(), rating - previousRating, 0);
+            }
+        }
+        Integer replacedRating = previousRating;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                courseStats.reviewSaved(material.getCourseCode(), replacedRating, rating);
+            }
+        });
+
+        Review review = reviews.findByUserIdAndMaterialId(userId, material.getId()).orElseThrow();
+        return new SavedReview(review, previousRating);
+    }
+}
@@ -4,6 +4,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,7 +22,9 @@ import com.ffenf.app.domain.Review;
 import com.ffenf.app.domain.User;
 import com.ffenf.app.repo.MaterialRepository;
 import com.ffenf.app.repo.ReviewRepository;
+import com.ffenf.app.repo.ReviewRepository.MaterialReviewItem;
 import com.ffenf.app.repo.UserRepository;
+import com.ffenf.app.search.LuceneSearchIndex;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
@@ -32,11 +37,16 @@ public class ReviewsController {
     private final ReviewRepository reviews;
     private final MaterialRepository materials;
     private final UserRepository users;
+    private final ObjectProvider<LuceneSearchIndex> searchIndex;
+    private final ReviewService reviewService;
 
-    public ReviewsController(ReviewRepository reviews, MaterialRepository materials, UserRepository users) {
+    public ReviewsController(ReviewRepository reviews, MaterialRepository materials, UserRepository users,
+                             ObjectProvider<LuceneSearchIndex> searchIndex, ReviewService reviewService) {
         this.reviews = reviews;
         this.materials = materials;
         this.users = users;
+        this.searchIndex = searchIndex;
+        this.reviewService = reviewService;
     }
 
     public record ReviewRequest(@Min(1) @Max(5) int rating, String comment) {}
@@ -54,28 +64,13 @@ public class ReviewsController {
             return ResponseEntity.notFound().build();
         }
 
-        // Check if user already reviewed this material
-        Review existingReview = reviews.findByUserIdAndMaterialId(user.getId(), materialId).orElse(null);
-        
-        Review review;
-        if (existingReview != null) {
-            // Update existing review
-            existingReview.setRating(req.rating());
-            existingReview.setComment(req.comment());
-            review = reviews.save(existingReview);
-        } else {
-            // Create new review
-            review = new Review();
-            review.setUserId(user.getId());
-            review.setMaterialId(materialId);
-            review.setRating(req.rating());
-            review.setComment(req.comment());
-            review = reviews.save(review);
+        // Creates or replaces the user's review and applies the rating deltas in one transaction
+        ReviewService.SavedReview saved = reviewService.submit(user.getId(), material, req.rating(), req.comment());
+        Review review = saved.review();
+        if (saved.ratingChanged()) {
+            searchIndex.ifAvailable(index -> materials.findById(materialId).ifPresent(index::indexMaterial));
         }
 
-        // Update material's average rating
-        updateMaterialRating(materialId);
-
         Map<String, Object> response = new java.util.HashMap<>();
         response.put("reviewId", review.getId());
         response.put("rating", review.getRating());
@@ -88,17 +83,18 @@ public class ReviewsController {
     public ResponseEntity<?> getReviews(@PathVariable UUID materialId,
                                        @RequestParam(defaultValue = "0") int page,
                                        @RequestParam(defaultValue = "10") int size) {
+
+        // One page of reviews with reviewer names joined in
+        Page<MaterialReviewItem> reviewPage = reviews.findItemsByMaterialId(materialId,
+            PageRequest.of(Math.max(page, 0), Math.max(1, Math.min(size, 100))));
         
-        List<Review> reviewList = reviews.findByMaterialId(materialId);
-        
-        List<Map<String, Object>> reviewsData = reviewList.stream()
+        List<Map<String, Object>> reviewsData = reviewPage.getContent().stream()
             .map(r -> {
-                User reviewer = users.findById(r.getUserId()).orElse(null);
                 Map<String, Object> map = new java.util.HashMap<>();
                 map.put("id", r.getId());
                 map.put("rating", r.getRating());
                 map.put("comment", r.getComment() != null ? r.getComment() : "");
-                map.put("reviewerName", reviewer != null ? reviewer.getName() : "Anonymous");
+                map.put("reviewerName", r.getReviewerName() != null ? r.getReviewerName() : "Anonymous");
                 map.put("createdAt", r.getCreatedAt());
                 return map;
             })
@@ -106,7 +102,9 @@ public class ReviewsController {
 
         Map<String, Object> response = new java.util.HashMap<>();
         response.put("reviews", reviewsData);
-        response.put("totalReviews", reviewList.size());
+        response.put("totalReviews", reviewPage.getTotalElements());
+        response.put("totalPages", reviewPage.getTotalPages());
+        response.put("currentPage", page);
         return ResponseEntity.ok(response);
     }
 
@@ -133,24 +131,4 @@ public class ReviewsController {
         response.put("review", reviewData);
         return ResponseEntity.ok(response);
     }
-
-    private void updateMaterialRating(UUID materialId) {
-        List<Review> materialReviews = reviews.findByMaterialId(materialId);
-        
-        if (materialReviews.isEmpty()) {
-            return;
-        }
-
-        double avgRating = materialReviews.stream()
-            .mapToInt(Review::getRating)
-            .average()
-            .orElse(0.0);
-
-        Material material = materials.findById(materialId).orElse(null);
-        if (material != null) {
-            material.setAvgRating(avgRating);
-            material.setRatingsCount(materialReviews.size());
-            materials.save(material);
-        }
-    }
 }
@@ -0,0 +1,478 @@
+package com.ffenf.app.search;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsCollectorManager;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.sortedset.DefaultSortedSetDocValuesReaderState;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
+import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ffenf.app.domain.Material;
+import com.ffenf.app.domain.Question;
+import com.ffenf.app.repo.MaterialContentRepository;
+import com.ffenf.app.repo.MaterialRepository;
+import com.ffenf.app.repo.QuestionRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional in-process Lucene index over materials and AskHub questions
+ * (app.search.lucene.enabled=true), for self-hosted deployments without PostgreSQL search.
+ *
+ * The index lives in an MMapDirectory under app.search.lucene.path, uses English stemming
+ * like the PostgreSQL full-text search, and is ranked with BM25.
+ * Controllers push changes as they happen (upload, review, new question); a SearcherManager
+ * makes them searchable within app.search.lucene.refresh-ms, and every row is re-indexed
+ * from the database on startup so missed updates never outlive a restart.
+ */
+@Component
+@ConditionalOnProperty(name = "app.search.lucene.enabled", havingValue = "true")
+public class LuceneSearchIndex {
+
+    public static final String MATERIAL = "material";
+    public static final String QUESTION = "question";
+
+    /** Facet dimensions returned with every search. */
+    public static final String FACET_SUBJECT = "subject";
+    public static final String FACET_COURSE_CODE = "courseCode";
+
+    private static final int FACET_TOP_N = 20;
+    private static final int REINDEX_BATCH = 500;
+    private static final long LIVE = -1;
+
+    /** Field boosts: titles and course codes decide relevance, body text only adds to it. */
+    private static final Map<String, Float> SEARCH_FIELDS = Map.of(
+        "title", 3.0f,
+        "course_code", 3.0f,
+        "subject", 2.0f,
+        "tags", 2.0f,
+        "body", 1.0f
+    );
+
+    public record Hit(UUID id, float score, String highlight) {}
+
+    public record Result(long totalHits, List<Hit> hits, Map<String, Map<String, Integer>> facets) {
+        public List<UUID> ids() {
+            return hits.stream().map(Hit::id).toList();
+        }
+    }
+
+    private final MaterialRepository materials;
+    private final MaterialContentRepository materialContents;
+    private final QuestionRepository questions;
+    private final Analyzer analyzer = new EnglishAnalyzer();
+    private final FacetsConfig facetsConfig = new FacetsConfig();
+    private final MMapDirectory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private volatile DefaultSortedSetDocValuesReaderState facetState;
+
+    // Request-path writes made while the startup rebuild runs, so it never overwrites them with
+    // older batch rows: uid -> sequence number of the last such write. Guarded by writeLock.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong liveWriteSeq = new AtomicLong();
+    private Map<String, Long> rebuildLiveWrites;
+
+    public LuceneSearchIndex(MaterialRepository materials,
+                             MaterialContentRepository materialContents,
+                             QuestionRepository questions,
+                             @Value("${app.search.lucene.path:/tmp/lucene-index}") String indexPath) throws IOException {
+        this.materials = materials;
+        this.materialContents = materialContents;
+        this.questions = questions;
+
+        Path path = Paths.get(indexPath).toAbsolutePath().normalize();
+        Files.createDirectories(path);
+        this.directory = new MMapDirectory(path);
+
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setSimilarity(new BM25Similarity());
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        this.writer = new IndexWriter(directory, config);
+        this.searcherManager = new SearcherManager(writer, new SearcherFactory() {
+            @Override
+            public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                searcher.setSimilarity(new BM25Similarity());
+                return searcher;
+            }
+        });
+        System.out.println("Lucene search index opened at " + path);
+    }
+
+    public void indexMaterial(Material material) {
+        indexMaterial(material, materialContents.findSummaryByMaterialId(material.getId()), LIVE);
+    }
+
+    private void indexMaterial(Material material, String summary, long readSeq) {
+        Document doc = baseDocument(MATERIAL, material.getId(), material.getTitle(), material.getCourseCode(),
+            material.getSubject(), material.getTags(), summary);
+        doc.add(new DoubleDocValuesField("avg_rating", material.getAvgRating()));
+        doc.add(new NumericDocValuesField("ratings_count", material.getRatingsCount()));
+        doc.add(new NumericDocValuesField("created_at", epochMillis(material.getCreatedAt())));
+        update(MATERIAL, material.getId(), doc, readSeq);
+    }
+
+    public void indexQuestion(Question question) {
+        indexQuestion(question, LIVE);
+    }
+
+    private void indexQuestion(Question question, long readSeq) {
+        Document doc = baseDocument(QUESTION, question.getId(), question.getTitle(), question.getCourseCode(),
+            question.getSubject(), question.getTags(), question.getDescription());
+        doc.add(new NumericDocValuesField("created_at", epochMillis(question.getCreatedAt())));
+        update(QUESTION, question.getId(), doc, readSeq);
+    }
+
+    /**
+     * Materials matching the query, filtered by exact subject and course code when given.
+     * sortBy accepts relevance, avgRating, ratingsCount, createdAt or title; see {@link #supportsMaterialSort}.
+     */
+    public Result searchMaterials(String query, String subject, String courseCode, String sortBy, boolean descending,
+                                  int page, int size) {
+        return search(MATERIAL, query, subject, courseCode, materialSort(sortBy, descending), page, size);
+    }
+
+    /**
+     * Questions matching the query, best match first, optionally within one course.
+     */
+    public Result searchQuestions(String query, String courseCode, int page, int size) {
+        return search(QUESTION, query, null, courseCode, Sort.RELEVANCE, page, size);
+    }
+
+    /**
+     * Whether a /materials/search sort can be served from the index. Download counts are not
+     * pushed to the index, so sorting by them stays on the database.
+     */
+    public static boolean supportsMaterialSort(String sortBy) {
+        return switch (sortBy) {
+            case "relevance", "avgRating", "ratingsCount", "createdAt", "title" -> true;
+            default -> false;
+        };
+    }
+
+    private Result search(String type, String queryText, String subject, String courseCode, Sort sort,
+                          int page, int size) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder()
+            .add(new TermQuery(new Term("type", type)), BooleanClause.Occur.FILTER);
+        if (subject != null && !subject.isBlank()) {
+            builder.add(new TermQuery(new Term("subject_exact", subject.trim().toLowerCase())), BooleanClause.Occur.FILTER);
+        }
+        if (courseCode != null && !courseCode.isBlank()) {
+            builder.add(new TermQuery(new Term("course_code_exact", TrigramSearchService.normaliseCourseCode(courseCode))),
+                BooleanClause.Occur.FILTER);
+        }
+        Query textQuery = null;
+        if (queryText != null && !queryText.isBlank()) {
+            textQuery = new SimpleQueryParser(analyzer, SEARCH_FIELDS).parse(queryText);
+            builder.add(textQuery, BooleanClause.Occur.MUST);
+        } else {
+            builder.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        }
+        Query query = builder.build();
+
+        IndexSearcher searcher;
+        try {
+            searcher = searcherManager.acquire();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            int wanted = Math.max(1, (page + 1) * size);
+            FacetsCollectorManager.FacetsResult result =
+                FacetsCollectorManager.search(searcher, query, wanted, sort, true, new FacetsCollectorManager());
+            TopDocs topDocs = result.topDocs();
+
+            int from = Math.min(page * size, topDocs.scoreDocs.length);
+            ScoreDoc[] pageDocs = Arrays.copyOfRange(topDocs.scoreDocs, from, topDocs.scoreDocs.length);
+            TopDocs pageTopDocs = new TopDocs(topDocs.totalHits, pageDocs);
+
+            String[] highlights = new String[pageDocs.length];
+            if (textQuery != null && pageDocs.length > 0) {
+                UnifiedHighlighter highlighter = UnifiedHighlighter.builder(searcher, analyzer).build();
+                highlights = highlighter.highlight("body", textQuery, pageTopDocs, 2);
+            }
+
+            List<Hit> hits = new ArrayList<>(pageDocs.length);
+            for (int i = 0; i < pageDocs.length; i++) {
+                String id = searcher.storedFields().document(pageDocs[i].doc).get("id");
+                hits.add(new Hit(UUID.fromString(id), pageDocs[i].score, highlights[i]));
+            }
+
+            return new Result(topDocs.totalHits.value, hits, facets(searcher, result));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                searcherManager.release(searcher);
+            } catch (IOException e) {
+                System.err.println("Failed to release Lucene searcher: " + e.getMessage());
+            }
+        }
+    }
+
+    private Map<String, Map<String, Integer>> facets(IndexSearcher searcher, FacetsCollectorManager.FacetsResult result)
+            throws IOException {
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        DefaultSortedSetDocValuesReaderState state = facetState(searcher);
+        if (state == null) {
+            return facets;
+        }
+        SortedSetDocValuesFacetCounts counts = new SortedSetDocValuesFacetCounts(state, result.facetsCollector());
+        for (String dim : List.of(FACET_SUBJECT, FACET_COURSE_CODE)) {
+            Map<String, Integer> values = new LinkedHashMap<>();
+            FacetResult facet = state.getOrdRange(dim) == null ? null : counts.getTopChildren(FACET_TOP_N, dim);
+            if (facet != null) {
+                for (LabelAndValue lv : facet.labelValues) {
+                    values.put(lv.label, lv.value.intValue());
+                }
+            }
+            facets.put(dim, values);
+        }
+        return facets;
+    }
+
+    /**
+     * Facet ordinals are built once per reader and reused until the next refresh.
+     */
+    private DefaultSortedSetDocValuesReaderState facetState(IndexSearcher searcher) throws IOException {
+        DefaultSortedSetDocValuesReaderState state = facetState;
+        if (state != null && state.getReader() == searcher.getIndexReader()) {
+            return state;
+        }
+        synchronized (this) {
+            state = facetState;
+            if (state == null || state.getReader() != searcher.getIndexReader()) {
+                try {
+                    state = new DefaultSortedSetDocValuesReaderState(searcher.getIndexReader(), facetsConfig);
+                } catch (IllegalArgumentException e) {
+                    // No facet values indexed yet
+                    return null;
+                }
+                facetState = state;
+            }
+            return state;
+        }
+    }
+
+    private static Sort materialSort(String sortBy, boolean descending) {
+        SortField field = switch (sortBy) {
+            case "avgRating" -> new SortField("avg_rating", SortField.Type.DOUBLE, descending);
+            case "ratingsCount" -> new SortField("ratings_count", SortField.Type.LONG, descending);
+            case "createdAt" -> new SortField("created_at", SortField.Type.LONG, descending);
+            case "title" -> new SortField("title_sort", SortField.Type.STRING, descending);
+            default -> null;
+        };
+        if (field == null) {
+            return Sort.RELEVANCE;
+        }
+        return new Sort(field, SortField.FIELD_SCORE);
+    }
+
+    private Document baseDocument(String type, UUID id, String title, String courseCode, String subject,
+                                  String tags, String body) {
+        Document doc = new Document();
+        doc.add(new StringField("uid", type + ":" + id, Field.Store.NO));
+        doc.add(new StringField("type", type, Field.Store.NO));
+        doc.add(new LongPoint("indexed_at", System.currentTimeMillis()));
+        doc.add(new StoredField("id", id.toString()));
+        doc.add(new TextField("title", nullToEmpty(title), Field.Store.YES));
+        doc.add(new SortedDocValuesField("title_sort", new BytesRef(nullToEmpty(title).toLowerCase())));
+        doc.add(new TextField("course_code", nullToEmpty(courseCode), Field.Store.NO));
+        doc.add(new TextField("subject", nullToEmpty(subject), Field.Store.NO));
+        doc.add(new TextField("tags", nullToEmpty(tags).replace(',', ' '), Field.Store.NO));
+        doc.add(new TextField("body", nullToEmpty(body), Field.Store.YES));
+
+        if (courseCode != null && !courseCode.isBlank()) {
+            doc.add(new StringField("course_code_exact", TrigramSearchService.normaliseCourseCode(courseCode), Field.Store.NO));
+            doc.add(new SortedSetDocValuesFacetField(FACET_COURSE_CODE, courseCode.trim()));
+        }
+        if (subject != null && !subject.isBlank()) {
+            doc.add(new StringField("subject_exact", subject.trim().toLowerCase(), Field.Store.NO));
+            doc.add(new SortedSetDocValuesFacetField(FACET_SUBJECT, subject.trim()));
+        }
+        return doc;
+    }
+
+    /**
+     * readSeq is LIVE for request-path writes; rebuild writes pass the live write sequence seen
+     * before their batch was read, and are skipped if a request has indexed the row since.
+     */
+    private void update(String type, UUID id, Document doc, long readSeq) {
+        String uid = type + ":" + id;
+        writeLock.lock();
+        try {
+            if (rebuildLiveWrites != null) {
+                if (readSeq == LIVE) {
+                    rebuildLiveWrites.put(uid, liveWriteSeq.incrementAndGet());
+                } else if (rebuildLiveWrites.getOrDefault(uid, 0L) > readSeq) {
+                    return;
+                }
+            }
+            writer.updateDocument(new Term("uid", uid), facetsConfig.build(doc));
+        } catch (IOException e) {
+            // The index is a cache of the database; the next restart rebuilds it
+            System.err.println("Lucene indexing failed for " + type + " " + id + ": " + e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void trackLiveWrites(boolean enabled) {
+        writeLock.lock();
+        try {
+            rebuildLiveWrites = enabled ? new HashMap<>() : null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Re-sync the index from the database in the background once the app is up. Documents are
+     * replaced in place, so searches keep working on the previous contents while this runs, and
+     * documents whose rows no longer exist are dropped at the end. Rows a request indexes after
+     * their batch was read keep the request's newer document.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reindexOnStartup() {
+        Thread.ofVirtual().name("lucene-reindex").start(() -> {
+            long started = System.currentTimeMillis();
+            trackLiveWrites(true);
+            try {
+                int materialCount = reindex(page -> materials.findAll(page), (batch, readSeq) -> {
+                    // Summaries for the whole batch in one query
+                    Map<UUID, String> summaries = new HashMap<>();
+                    materialContents.findSummariesByMaterialIdIn(batch.stream().map(Material::getId).toList())
+                        .forEach(c -> summaries.put(c.getMaterialId(), c.getSummary()));
+                    batch.forEach(m -> indexMaterial(m, summaries.get(m.getId()), readSeq));
+                });
+                int questionCount = reindex(page -> questions.findAll(page), (batch, readSeq) ->
+                    batch.forEach(q -> indexQuestion(q, readSeq)));
+                // Every surviving row was just rewritten, so anything older belongs to a deleted row
+                writer.deleteDocuments(LongPoint.newRangeQuery("indexed_at", Long.MIN_VALUE, started - 1));
+                writer.commit();
+                searcherManager.maybeRefreshBlocking();
+                System.out.println("Lucene reindex finished: " + materialCount + " materials, " + questionCount
+                    + " questions in " + (System.currentTimeMillis() - started) + "ms");
+            } catch (Exception e) {
+                System.err.println("Lucene reindex failed: " + e.getMessage());
+            } finally {
+                trackLiveWrites(false);
+            }
+        });
+    }
+
+    private <T> int reindex(Function<PageRequest, Page<T>> loader, BiConsumer<List<T>, Long> indexer) {
+        int count = 0;
+        Page<T> batch;
+        int page = 0;
+        do {
+            long readSeq = liveWriteSeq.get();
+            // Stable order, so rows inserted during the rebuild don't shift pages already read
+            batch = loader.apply(PageRequest.of(page++, REINDEX_BATCH, org.springframework.data.domain.Sort.by("id")));
+            indexer.accept(batch.getContent(), readSeq);
+            count += batch.getNumberOfElements();
+        } while (batch.hasNext());
+        return count;
+    }
+
+    /**
+     * Near-real-time refresh, so writes that arrived without one become visible.
+     */
+    @Scheduled(fixedDelayString = "${app.search.lucene.refresh-ms:1000}")
+    public void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            System.err.println("Lucene refresh failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Durable commit; searches don't need it, it only bounds what a crash would lose before reindexing.
+     */
+    @Scheduled(fixedDelayString = "${app.search.lucene.commit-ms:60000}")
+    public void commit() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (IOException e) {
+            System.err.println("Lucene commit failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private static long epochMillis(Instant instant) {
+        return instant != null ? instant.toEpochMilli() : 0L;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,62 @@
+package com.ffenf.app.search;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ffenf.app.domain.Material;
+import com.ffenf.app.domain.Question;
+import com.ffenf.app.repo.MaterialRepository;
+import com.ffenf.app.repo.QuestionRepository;
+
+/**
+ * Typo-tolerant search backed by PostgreSQL pg_trgm.
+ *
+ * The similarity threshold (app.search.fuzzy.similarity-threshold) is applied with
+ * set_config(..., true), so it only lasts for the surrounding transaction and the indexed
+ * {@code %} operator can be used for both the page and its count query.
+ */
+@Service
+public class TrigramSearchService {
+
+    private final MaterialRepository materials;
+    private final QuestionRepository questions;
+    private final double similarityThreshold;
+
+    public TrigramSearchService(MaterialRepository materials,
+                                QuestionRepository questions,
+                                @Value("${app.search.fuzzy.similarity-threshold:0.3}") double similarityThreshold) {
+        this.materials = materials;
+        this.questions = questions;
+        this.similarityThreshold = Math.min(1.0, Math.max(0.0, similarityThreshold));
+    }
+
+    /**
+     * Materials whose title or course code is similar to the query. Sort by "rank" for relevance.
+     */
+    @Transactional(readOnly = true)
+    public Page<Material> searchMaterials(String query, Pageable pageable) {
+        materials.setSimilarityThreshold(similarityThreshold);
+        return materials.searchTrigram(query.trim(), normaliseCourseCode(query), pageable);
+    }
+
+    /**
+     * Questions whose title is similar to the query, most similar first, optionally within one course.
+     */
+    @Transactional(readOnly = true)
+    public Page<Question> searchQuestions(String query, String courseCode, int page, int size) {
+        materials.setSimilarityThreshold(similarityThreshold);
+        String course = courseCode == null || courseCode.isEmpty() ? null : courseCode;
+        return questions.searchTrigram(query.trim(), course, PageRequest.of(page, size));
+    }
+
+    /**
+     * "coa 123", "COA-123" and "coa123" all become "COA123", matching the indexed expression.
+     */
+    public static String normaliseCourseCode(String query) {
+        return query.replaceAll("[^\\p{Alnum}]", "").toUpperCase();
+    }
+}
@@ -1,10 +1,15 @@
 package com.ffenf.app.storage;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.UUID;
 import java.util.regex.Pattern;
 
@@ -28,35 +33,7 @@ public class FileStorageService {
             throw new IOException("File size exceeds 50MB limit");
         }
 
-        // Try multiple storage locations for Railway compatibility
-        Path uploadDir = null;
-        String[] storagePaths = {
-            storagePath,
-            "/tmp/uploads",
-            System.getProperty("java.io.tmpdir") + "/uploads",
-            "/app/uploads"
-        };
-        
-        for (String path : storagePaths) {
-            try {
-                Path testDir = Paths.get(path);
-                if (!Files.exists(testDir)) {
-                    Files.createDirectories(testDir);
-                }
-                if (Files.isWritable(testDir)) {
-                    uploadDir = testDir;
-                    System.out.println("Using storage directory: " + uploadDir);
-                    break;
-                }
-            } catch (Exception e) {
-                System.err.println("Failed to use storage path " + path + ": " + e.getMessage());
-                continue;
-            }
-        }
-        
-        if (uploadDir == null) {
-            throw new IOException("No writable storage directory found. Tried: " + String.join(", ", storagePaths));
-        }
+        Path uploadDir = resolveUploadDir();
 
         // Generate unique filename with timestamp for better organization
         String originalFilename = file.getOriginalFilename();
@@ -93,6 +70,99 @@ public class FileStorageService {
         return filename;
     }
 
+    /**
+     * Result of a content-addressed store. created is false when identical bytes were
+     * already on disk and the existing file was reused.
+     */
+    public record StoredContent(String storageKey, String sha256, long size, boolean created) {}
+
+    /**
+     * Store a file under the SHA-256 of its content. The hash is computed while the upload
+     * streams to a temp file, so the bytes are read exactly once; identical uploads end up
+     * as one file on disk.
+     */
+    public StoredContent storeContentAddressed(MultipartFile file) throws IOException {
+        if (file.isEmpty()) {
+            throw new IOException("File is empty");
+        }
+        
+        if (file.getSize() > 50 * 1024 * 1024) {
+            throw new IOException("File size exceeds 50MB limit");
+        }
+
+        Path uploadDir = resolveUploadDir();
+
+        String originalFilename = file.getOriginalFilename();
+        String extension = "";
+        if (originalFilename != null && originalFilename.contains(".")) {
+            extension = originalFilename.substring(originalFilename.lastIndexOf(".")).toLowerCase();
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        Path tempFile = Files.createTempFile(uploadDir, "upload_", ".part");
+        try {
+            long size;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                size = Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (size != file.getSize()) {
+                throw new IOException("File verification failed after write");
+            }
+
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            String filename = sha256 + extension;
+            Path target = uploadDir.resolve(filename);
+
+            if (fileExists(filename)) {
+                System.out.println("Identical content already stored: " + filename);
+                return new StoredContent(filename, sha256, size, false);
+            }
+
+            // Same bytes under the same name, so a concurrent identical upload winning the move is harmless
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("File stored successfully: " + target);
+            return new StoredContent(filename, sha256, size, true);
+        } catch (Exception e) {
+            System.err.println("Failed to store file: " + e.getMessage());
+            throw e instanceof IOException io ? io : new IOException("Failed to store file: " + e.getMessage(), e);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private Path resolveUploadDir() throws IOException {
+        // Try multiple storage locations for Railway compatibility
+        String[] storagePaths = {
+            storagePath,
+            "/tmp/uploads",
+            System.getProperty("java.io.tmpdir") + "/uploads",
+            "/app/uploads"
+        };
+        
+        for (String path : storagePaths) {
+            try {
+                Path testDir = Paths.get(path);
+                if (!Files.exists(testDir)) {
+                    Files.createDirectories(testDir);
+                }
+                if (Files.isWritable(testDir)) {
+                    System.out.println("Using storage directory: " + testDir);
+                    return testDir;
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to use storage path " + path + ": " + e.getMessage());
+            }
+        }
+        
+        throw new IOException("No writable storage directory found. Tried: " + String.join(", ", storagePaths));
+    }
+
     public Path getFilePath(String filename) {
         // Search in all possible storage locations
         String[] storagePaths = {
@@ -0,0 +1,109 @@
+package com.ffenf.app.worker;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Claim-and-run loop shared by the background workers.
+ *
+ * Candidates are claimed one by one with a conditional update (so only one instance ever runs
+ * a given item) and processed on virtual threads, bounded by a fixed number of slots. A claim
+ * is a lease: {@link #renewLeases()} touches every item still running here, so the owning
+ * worker's stale sweep only picks up items whose instance crashed or was redeployed.
+ */
+public class LeasedDispatcher<K> {
+
+    /**
+     * Database side of a work queue.
+     */
+    public interface WorkSource<K> {
+        /** Items ready to run, oldest first, at most limit. */
+        List<K> findCandidates(int limit);
+
+        /** Take the item if nobody else has; false if another dispatcher got there first. */
+        boolean claim(K id);
+
+        /** Renew the lease on items still running here. */
+        void renewLeases(Set<K> ids);
+    }
+
+    private final String name;
+    private final WorkSource<K> source;
+    private final Consumer<K> task;
+    private final ExecutorService executor;
+    private final Semaphore slots;
+    private final AtomicBoolean dispatching = new AtomicBoolean(false);
+    private final Set<K> running = ConcurrentHashMap.newKeySet();
+
+    public LeasedDispatcher(String name, int concurrency, WorkSource<K> source, Consumer<K> task) {
+        this.name = name;
+        this.source = source;
+        this.task = task;
+        this.slots = new Semaphore(Math.max(1, concurrency));
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+
+    /**
+     * Dispatch right away (e.g. after new work was queued) instead of waiting for the next poll.
+     */
+    public void wakeUp() {
+        executor.execute(this::dispatch);
+    }
+
+    public void dispatch() {
+        if (!dispatching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int free = slots.availablePermits();
+            if (free == 0) {
+                return;
+            }
+
+            for (K id : source.findCandidates(free)) {
+                if (!slots.tryAcquire()) {
+                    break;
+                }
+                if (!source.claim(id)) {
+                    // Another dispatcher got there first
+                    slots.release();
+                    continue;
+                }
+                running.add(id);
+                executor.execute(() -> {
+                    try {
+                        task.accept(id);
+                    } finally {
+                        running.remove(id);
+                        slots.release();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            System.err.println(name + " worker dispatch error: " + e.getMessage());
+        } finally {
+            dispatching.set(false);
+        }
+    }
+
+    public void renewLeases() {
+        if (running.isEmpty()) {
+            return;
+        }
+        try {
+            source.renewLeases(Set.copyOf(running));
+        } catch (Exception e) {
+            System.err.println(name + " worker failed to renew leases: " + e.getMessage());
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
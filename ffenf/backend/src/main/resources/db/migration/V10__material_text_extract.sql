@@ -0,0 +1,7 @@
+-- text_extract held the OpenAI file id; give the id its own column so text_extract
+-- can store the text extracted from the PDF.
+ALTER TABLE materials ADD COLUMN openai_file_id VARCHAR(128);
+UPDATE materials SET openai_file_id = text_extract WHERE text_extract LIKE 'file-%';
+UPDATE materials SET text_extract = NULL WHERE text_extract LIKE 'file-%' OR text_extract LIKE 'openai_failed_%';
+
+ALTER TABLE content_blobs ADD COLUMN text_extract TEXT;
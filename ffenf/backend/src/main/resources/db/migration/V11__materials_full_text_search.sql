@@ -0,0 +1,11 @@
+-- Full-text search over materials. Title and course code rank highest, then subject and
+-- tags, then the generated summary. Course codes use the 'simple' config so they aren't stemmed.
+ALTER TABLE materials ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(course_code, '')), 'A') ||
+    setweight(to_tsvector('english', coalesce(subject, '')), 'B') ||
+    setweight(to_tsvector('english', replace(coalesce(tags, ''), ',', ' ')), 'B') ||
+    setweight(to_tsvector('english', coalesce(summary, '')), 'C')
+) STORED;
+
+CREATE INDEX idx_materials_search_vector ON materials USING GIN (search_vector);
@@ -0,0 +1,8 @@
+-- Trigram indexes for typo-tolerant search. Course codes are indexed with spaces and
+-- punctuation stripped so "coa 123", "COA-123" and "COA123" all compare alike.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_materials_title_trgm ON materials USING GIN (title gin_trgm_ops);
+CREATE INDEX idx_materials_course_code_trgm ON materials
+    USING GIN ((regexp_replace(course_code, '[^[:alnum:]]', '', 'g')) gin_trgm_ops);
+CREATE INDEX idx_questions_title_trgm ON questions USING GIN (title gin_trgm_ops);
@@ -0,0 +1,9 @@
+-- Composite indexes matching the keyset (seek) pagination orderings, with id as tie-breaker.
+CREATE INDEX idx_materials_rating_keyset ON materials(avg_rating, created_at, id);
+CREATE INDEX idx_materials_created_keyset ON materials(created_at, id);
+CREATE INDEX idx_materials_user_created_keyset ON materials(user_id, created_at, id);
+CREATE INDEX idx_questions_created_keyset ON questions(created_at, id);
+
+-- Superseded by the composite indexes above (same leading column)
+DROP INDEX IF EXISTS idx_materials_user_id;
+DROP INDEX IF EXISTS idx_questions_created_at;
@@ -0,0 +1,2 @@
+-- Equality lookups and GROUP BY on course code (the trigram index only serves similarity matches)
+CREATE INDEX idx_materials_course_code ON materials(course_code);
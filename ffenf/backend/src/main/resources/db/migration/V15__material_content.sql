@@ -0,0 +1,72 @@
+-- Move the large per-material text (PDF text layer, AI summary and flashcards) out of the
+-- materials row, so list and search queries never read it.
+CREATE TABLE material_content (
+    material_id     UUID PRIMARY KEY REFERENCES materials(id) ON DELETE CASCADE,
+    text_extract    TEXT,
+    summary         TEXT,
+    flashcards_json TEXT,
+    updated_at      TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO material_content (material_id, text_extract, summary, flashcards_json, updated_at)
+SELECT id, text_extract, summary, flashcards_json, updated_at
+FROM materials
+WHERE text_extract IS NOT NULL OR summary IS NOT NULL OR flashcards_json IS NOT NULL;
+
+-- The generated search_vector reads materials.summary, so it becomes a trigger-maintained column
+DROP INDEX idx_materials_search_vector;
+ALTER TABLE materials DROP COLUMN search_vector;
+ALTER TABLE materials DROP COLUMN text_extract;
+ALTER TABLE materials DROP COLUMN summary;
+ALTER TABLE materials DROP COLUMN flashcards_json;
+ALTER TABLE materials ADD COLUMN search_vector tsvector;
+
+-- Same weighting as V11
+CREATE FUNCTION materials_search_vector(title TEXT, course_code TEXT, subject TEXT, tags TEXT, summary TEXT)
+RETURNS tsvector LANGUAGE sql IMMUTABLE AS $$
+    SELECT setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+           setweight(to_tsvector('simple', coalesce(course_code, '')), 'A') ||
+           setweight(to_tsvector('english', coalesce(subject, '')), 'B') ||
+           setweight(to_tsvector('english', replace(coalesce(tags, ''), ',', ' ')), 'B') ||
+           setweight(to_tsvector('english', coalesce(summary, '')), 'C')
+$$;
+
+-- Only changes to searchable columns recompute the vector, so rating and download updates stay
+-- cheap. The ORM writes every column on update, hence the explicit comparison with OLD.
+CREATE FUNCTION materials_search_vector_refresh() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'UPDATE'
+        AND NEW.title IS NOT DISTINCT FROM OLD.title
+        AND NEW.course_code IS NOT DISTINCT FROM OLD.course_code
+        AND NEW.subject IS NOT DISTINCT FROM OLD.subject
+        AND NEW.tags IS NOT DISTINCT FROM OLD.tags THEN
+        RETURN NEW;
+    END IF;
+    NEW.search_vector := materials_search_vector(NEW.title, NEW.course_code, NEW.subject, NEW.tags,
+        (SELECT c.summary FROM material_content c WHERE c.material_id = NEW.id));
+    RETURN NEW;
+END
+$$;
+
+CREATE TRIGGER trg_materials_search_vector
+    BEFORE INSERT OR UPDATE OF title, course_code, subject, tags ON materials
+    FOR EACH ROW EXECUTE FUNCTION materials_search_vector_refresh();
+
+CREATE FUNCTION material_content_search_vector_refresh() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    UPDATE materials m
+    SET search_vector = materials_search_vector(m.title, m.course_code, m.subject, m.tags, NEW.summary)
+    WHERE m.id = NEW.material_id;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER trg_material_content_search_vector
+    AFTER INSERT OR UPDATE OF summary ON material_content
+    FOR EACH ROW EXECUTE FUNCTION material_content_search_vector_refresh();
+
+UPDATE materials m
+SET search_vector = materials_search_vector(m.title, m.course_code, m.subject, m.tags,
+    (SELECT c.summary FROM material_content c WHERE c.material_id = m.id));
+
+CREATE INDEX idx_materials_search_vector ON materials USING GIN (search_vector);
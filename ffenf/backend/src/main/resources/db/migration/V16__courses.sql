@@ -0,0 +1,33 @@
+-- Per-course aggregates, maintained incrementally by the app on upload, review and question
+-- events so course pages read one row instead of scanning materials, questions and reviews.
+-- Average rating is ratings_sum / ratings_count over every review of the course's materials.
+CREATE TABLE courses (
+    course_code      VARCHAR(64) PRIMARY KEY,
+    material_count   INT NOT NULL DEFAULT 0,
+    question_count   INT NOT NULL DEFAULT 0,
+    ratings_count    INT NOT NULL DEFAULT 0,
+    ratings_sum      BIGINT NOT NULL DEFAULT 0,
+    last_activity_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_courses_last_activity ON courses(last_activity_at);
+
+-- Backfill from existing data
+INSERT INTO courses (course_code, material_count, question_count, ratings_count, ratings_sum, last_activity_at)
+SELECT course_code, SUM(material_count), SUM(question_count), SUM(ratings_count), SUM(ratings_sum), MAX(last_activity_at)
+FROM (
+    SELECT m.course_code, COUNT(*) AS material_count, 0 AS question_count, 0 AS ratings_count, 0 AS ratings_sum,
+           MAX(m.created_at) AS last_activity_at
+    FROM materials m
+    GROUP BY m.course_code
+    UNION ALL
+    SELECT q.course_code, 0, COUNT(*), 0, 0, MAX(q.created_at)
+    FROM questions q
+    GROUP BY q.course_code
+    UNION ALL
+    SELECT m.course_code, 0, 0, COUNT(*), SUM(r.rating), MAX(r.created_at)
+    FROM reviews r JOIN materials m ON m.id = r.material_id
+    GROUP BY m.course_code
+) activity
+WHERE course_code IS NOT NULL AND course_code <> ''
+GROUP BY course_code;
@@ -0,0 +1,15 @@
+-- Running sum of review ratings so a review only applies a delta to its material instead of
+-- re-reading every review; avg_rating is derived from ratings_sum / ratings_count.
+ALTER TABLE materials ADD COLUMN ratings_sum BIGINT NOT NULL DEFAULT 0;
+
+-- Backfill and reconcile all three columns from the reviews table
+UPDATE materials m
+SET ratings_sum = r.rating_sum,
+    ratings_count = r.rating_count,
+    avg_rating = r.rating_sum::float8 / r.rating_count
+FROM (
+    SELECT material_id, SUM(rating) AS rating_sum, COUNT(*) AS rating_count
+    FROM reviews
+    GROUP BY material_id
+) r
+WHERE r.material_id = m.id;
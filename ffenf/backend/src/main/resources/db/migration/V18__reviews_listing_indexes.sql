@@ -0,0 +1,6 @@
+-- Paged review listings read newest first per material and per user
+CREATE INDEX idx_reviews_material_created ON reviews(material_id, created_at DESC, id DESC);
+CREATE INDEX idx_reviews_user_created ON reviews(user_id, created_at DESC, id DESC);
+
+-- Covered by the leading column of idx_reviews_material_created
+DROP INDEX IF EXISTS idx_reviews_material_id;
@@ -0,0 +1,11 @@
+-- One vote per user per answer; answers.votes_up/votes_down are kept in step by the app
+-- in the same transaction. Votes cast before this table existed stay in the counters.
+CREATE TABLE answer_votes (
+    answer_id   UUID NOT NULL REFERENCES answers(id) ON DELETE CASCADE,
+    user_id     UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    value       SMALLINT NOT NULL CHECK (value IN (-1, 1)),
+    created_at  TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (answer_id, user_id)
+);
+
+CREATE INDEX idx_answer_votes_user_id ON answer_votes(user_id);
@@ -0,0 +1,13 @@
+-- At most one accepted answer per question. Earlier per-row accepts could leave several;
+-- keep the most recently updated one before adding the index.
+UPDATE answers a
+SET is_accepted = FALSE
+WHERE a.is_accepted
+  AND EXISTS (
+      SELECT 1 FROM answers b
+      WHERE b.question_id = a.question_id
+        AND b.is_accepted
+        AND (b.updated_at, b.id) > (a.updated_at, a.id)
+  );
+
+CREATE UNIQUE INDEX uq_answers_one_accepted ON answers(question_id) WHERE is_accepted;
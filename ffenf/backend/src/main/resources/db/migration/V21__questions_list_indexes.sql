@@ -0,0 +1,8 @@
+-- Keyset indexes for the AskHub list views (newest first per course, per user, unanswered)
+CREATE INDEX idx_questions_course_created ON questions(course_code, created_at, id);
+CREATE INDEX idx_questions_user_created ON questions(user_id, created_at, id);
+CREATE INDEX idx_questions_unanswered_created ON questions(created_at, id) WHERE answers_count = 0;
+
+-- Covered by the leading columns of the composite indexes above
+DROP INDEX IF EXISTS idx_questions_course_code;
+DROP INDEX IF EXISTS idx_questions_user_id;
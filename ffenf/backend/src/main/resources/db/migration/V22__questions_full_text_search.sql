@@ -0,0 +1,10 @@
+-- Full-text search over AskHub questions. Title and course code rank highest, then tags,
+-- then the description. Course codes use the 'simple' config so they aren't stemmed.
+ALTER TABLE questions ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(course_code, '')), 'A') ||
+    setweight(to_tsvector('english', replace(coalesce(tags, ''), ',', ' ')), 'B') ||
+    setweight(to_tsvector('english', coalesce(description, '')), 'C')
+) STORED;
+
+CREATE INDEX idx_questions_search_vector ON questions USING GIN (search_vector);
@@ -0,0 +1,2 @@
+-- Claims per job, so a job that keeps killing or hanging its worker stops being requeued
+ALTER TABLE ai_jobs ADD COLUMN attempts INT NOT NULL DEFAULT 0;
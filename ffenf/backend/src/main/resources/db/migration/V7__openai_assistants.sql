@@ -0,0 +1,9 @@
+-- OpenAI assistants reused across generations, one row per assistant profile.
+-- config_hash identifies the model/instructions the assistant was created with.
+CREATE TABLE openai_assistants (
+    profile         VARCHAR(64) PRIMARY KEY,
+    config_hash     VARCHAR(64) NOT NULL,
+    assistant_id    VARCHAR(128) NOT NULL,
+    created_at      TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at      TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
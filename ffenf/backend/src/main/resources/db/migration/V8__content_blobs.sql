@@ -0,0 +1,16 @@
+-- Uploaded files stored once per distinct content, keyed by SHA-256.
+-- Materials with identical bytes share the stored file, the OpenAI file and cached AI output.
+CREATE TABLE content_blobs (
+    sha256          VARCHAR(64) PRIMARY KEY,
+    storage_key     VARCHAR(512) NOT NULL,
+    file_size       BIGINT NOT NULL,
+    mime_type       VARCHAR(128),
+    openai_file_id  VARCHAR(128),
+    summary         TEXT,
+    flashcards_json TEXT,
+    created_at      TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at      TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+ALTER TABLE materials ADD COLUMN content_hash VARCHAR(64) REFERENCES content_blobs(sha256);
+CREATE INDEX idx_materials_content_hash ON materials(content_hash);
@@ -0,0 +1,6 @@
+-- Background ingestion of uploaded materials into OpenAI.
+-- status moves uploaded -> ingesting -> indexed, or to ingest_failed after the last retry.
+ALTER TABLE materials ADD COLUMN ingest_attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE materials ADD COLUMN next_ingest_at TIMESTAMP;
+ALTER TABLE materials ADD COLUMN ingest_error TEXT;
+CREATE INDEX idx_materials_status_next_ingest ON materials(status, next_ingest_at);
@@ -0,0 +1,151 @@
+package com.ffenf.app.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.ffenf.app.config.OpenAiConfig;
+
+class AiSummaryServiceTest {
+
+	private static OpenAiClient openAiClient;
+	private static AiSummaryService service;
+
+	@BeforeAll
+	static void setUp() {
+		OpenAiConfig config = new OpenAiConfig();
+		openAiClient = new OpenAiClient(config);
+		// Parsing never reaches the assistant registry or run waiter
+		service = new AiSummaryService(config, openAiClient, null, null);
+	}
+
+	@AfterAll
+	static void tearDown() {
+		openAiClient.shutdown();
+	}
+
+	@Test
+	void parsesCombinedResponse() {
+		AiSummaryService.GeneratedContent content = service.parseCombinedResponse(
+			"{\"summary\":\"## Overview\\nCells divide.\",\"cards\":[{\"front\":\"Q\",\"back\":\"A\"}]}");
+
+		assertNotNull(content);
+		assertEquals("## Overview\nCells divide.", content.summary());
+		assertEquals("{\"cards\":[{\"front\":\"Q\",\"back\":\"A\"}]}", content.flashcardsJson());
+	}
+
+	@Test
+	void parsesResponseWrappedInCodeFenceAndProse() {
+		AiSummaryService.GeneratedContent content = service.parseCombinedResponse(
+			"Here is the result:\n```json\n{\"summary\":\"S\",\"cards\":[]}\n```\nLet me know if you need more.");
+
+		assertNotNull(content);
+		assertEquals("S", content.summary());
+		assertEquals("{\"cards\":[]}", content.flashcardsJson());
+	}
+
+	@Test
+	void returnsNullWithoutJsonObject() {
+		assertNull(service.parseCombinedResponse(null));
+		assertNull(service.parseCombinedResponse(""));
+		assertNull(service.parseCombinedResponse("I could not read the document."));
+		assertNull(service.parseCombinedResponse("} backwards {"));
+	}
+
+	@Test
+	void returnsNullForInvalidJson() {
+		assertNull(service.parseCombinedResponse("{\"summary\": \"unterminated, \"cards\": [}"));
+	}
+
+	@Test
+	void keepsSummaryWhenCardsAreMissingOrWrongType() {
+		AiSummaryService.GeneratedContent missing = service.parseCombinedResponse("{\"summary\":\"S\"}");
+		AiSummaryService.GeneratedContent wrongType = service.parseCombinedResponse("{\"summary\":\"S\",\"cards\":{\"front\":\"Q\"}}");
+
+		assertEquals("S", missing.summary());
+		assertNull(missing.flashcardsJson());
+		assertEquals("S", wrongType.summary());
+		assertNull(wrongType.flashcardsJson());
+	}
+
+	@Test
+	void keepsCardsWhenSummaryIsMissingBlankOrWrongType() {
+		for (String response : List.of("{\"cards\":[]}", "{\"summary\":\"  \",\"cards\":[]}",
+				"{\"summary\":{\"text\":\"S\"},\"cards\":[]}")) {
+			AiSummaryService.GeneratedContent content = service.parseCombinedResponse(response);
+
+			assertNull(content.summary(), response);
+			assertEquals("{\"cards\":[]}", content.flashcardsJson(), response);
+		}
+	}
+
+	@Test
+	void returnsNullWhenNeitherPartIsUsable() {
+		assertNull(service.parseCombinedResponse("{}"));
+		assertNull(service.parseCombinedResponse("{\"summary\":42,\"cards\":\"none\"}"));
+	}
+
+	@Test
+	void textWithinLimitIsOneChunk() {
+		String text = "a".repeat(2000);
+
+		assertEquals(List.of(text), AiSummaryService.chunkText(text, 2000));
+	}
+
+	@Test
+	void emptyOrBlankTextHasNoChunks() {
+		assertTrue(AiSummaryService.chunkText("", 2000).isEmpty());
+		assertTrue(AiSummaryService.chunkText("     ", 2000).isEmpty());
+	}
+
+	@Test
+	void breaksAtWhitespaceWithoutSplittingWords() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; text.length() < 10000; i++) {
+			text.append("word").append(i).append(' ');
+		}
+
+		List<String> chunks = AiSummaryService.chunkText(text.toString(), 1000);
+
+		assertTrue(chunks.size() > 1);
+		chunks.forEach(chunk -> assertTrue(chunk.length() <= 1000, "chunk of " + chunk.length() + " chars"));
+		List<String> words = Arrays.asList(text.toString().trim().split(" "));
+		List<String> rejoined = Arrays.asList(String.join(" ", chunks).split(" "));
+		assertEquals(words, rejoined);
+	}
+
+	@Test
+	void cutsAtLimitWhenThereIsNoWhitespace() {
+		String text = "x".repeat(2500);
+
+		List<String> chunks = AiSummaryService.chunkText(text, 1000);
+
+		assertEquals(List.of(1000, 1000, 500), chunks.stream().map(String::length).toList());
+	}
+
+	@Test
+	void cutsAtLimitWhenOnlyWhitespaceIsInFirstHalf() {
+		// Breaking at the early space would leave a tiny chunk, so the cut stays at the limit
+		String text = "ab " + "y".repeat(1500);
+
+		List<String> chunks = AiSummaryService.chunkText(text, 1000);
+
+		assertEquals(1000, chunks.get(0).length());
+		assertEquals(text.length(), chunks.stream().mapToInt(String::length).sum());
+	}
+
+	@Test
+	void limitIsAtLeastOneThousandChars() {
+		String text = "z".repeat(1000);
+
+		assertEquals(List.of(text), AiSummaryService.chunkText(text, 10));
+	}
+}
@@ -0,0 +1,70 @@
+package com.ffenf.app.ai;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import com.ffenf.app.ai.PdfProcessingService.WhitespaceCollapsingWriter;
+
+class PdfProcessingServiceTest {
+
+	@Test
+	void collapsesWhitespaceRunsToSingleSpace() throws IOException {
+		WhitespaceCollapsingWriter writer = new WhitespaceCollapsingWriter();
+
+		writer.write("Cell  division\n\n\tbegins\r\nwith   mitosis.");
+
+		assertEquals("Cell division begins with mitosis.", writer.toString());
+	}
+
+	@Test
+	void dropsLeadingAndTrailingWhitespace() throws IOException {
+		WhitespaceCollapsingWriter writer = new WhitespaceCollapsingWriter();
+
+		writer.write("\n  Chapter 1  \n");
+
+		assertEquals("Chapter 1", writer.toString());
+	}
+
+	@Test
+	void collapsesWhitespaceSplitAcrossWrites() throws IOException {
+		WhitespaceCollapsingWriter writer = new WhitespaceCollapsingWriter();
+
+		writer.write("end of page  ");
+		writer.write("\n");
+		writer.write(new char[] { ' ', '\t', 'n', 'e', 'x', 't' }, 0, 6);
+
+		assertEquals("end of page next", writer.toString());
+	}
+
+	@Test
+	void keepsWordSplitAcrossWritesTogether() throws IOException {
+		WhitespaceCollapsingWriter writer = new WhitespaceCollapsingWriter();
+
+		writer.write("photo");
+		writer.write("synthesis");
+
+		assertEquals("photosynthesis", writer.toString());
+	}
+
+	@Test
+	void honoursOffsetAndLength() {
+		WhitespaceCollapsingWriter writer = new WhitespaceCollapsingWriter();
+
+		writer.write("xx a  b xx".toCharArray(), 2, 6);
+
+		assertEquals("a b", writer.toString());
+	}
+
+	@Test
+	void whitespaceOnlyInputIsEmpty() throws IOException {
+		WhitespaceCollapsingWriter writer = new WhitespaceCollapsingWriter();
+
+		writer.write(" \n\t ");
+		writer.write("\r\n");
+
+		assertEquals("", writer.toString());
+	}
+}
@@ -0,0 +1,59 @@
+package com.ffenf.app.paging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class CursorPageTest {
+
+	private record Row(Instant createdAt, UUID id) {}
+
+	@Test
+	void extraRowMeansNextPageStartingAfterLastReturnedRow() {
+		List<Row> rows = rows(4);
+
+		CursorPage<Row> page = CursorPage.of(rows, 3, r -> KeysetCursor.of(r.createdAt(), r.id()), null);
+
+		assertTrue(page.hasNext());
+		assertEquals(rows.subList(0, 3), page.content());
+		assertEquals(KeysetCursor.of(rows.get(2).createdAt(), rows.get(2).id()), KeysetCursor.decode(page.nextCursor()));
+	}
+
+	@Test
+	void exactlyPageSizeRowsIsLastPage() {
+		List<Row> rows = rows(3);
+
+		CursorPage<Row> page = CursorPage.of(rows, 3, r -> KeysetCursor.of(r.createdAt(), r.id()), null);
+
+		assertFalse(page.hasNext());
+		assertNull(page.nextCursor());
+		assertEquals(rows, page.content());
+	}
+
+	@Test
+	void emptyResultIsLastPage() {
+		CursorPage<Row> page = CursorPage.of(List.of(), 10, r -> KeysetCursor.of(r.createdAt(), r.id()), 0L);
+
+		assertFalse(page.hasNext());
+		assertNull(page.nextCursor());
+		assertTrue(page.content().isEmpty());
+		assertEquals(0L, page.totalElements());
+	}
+
+	private static List<Row> rows(int count) {
+		List<Row> rows = new ArrayList<>();
+		Instant start = Instant.parse("2025-03-01T10:00:00Z");
+		for (int i = 0; i < count; i++) {
+			rows.add(new Row(start.minusSeconds(i), UUID.randomUUID()));
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,79 @@
+package com.ffenf.app.paging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class KeysetCursorTest {
+
+	private static final UUID ID = UUID.fromString("3f2b8c1e-4d5a-4e6f-9a0b-1c2d3e4f5a6b");
+
+	@Test
+	void roundTripsCreatedAtCursor() {
+		KeysetCursor cursor = KeysetCursor.of(Instant.parse("2025-03-01T10:15:30.123456789Z"), ID);
+
+		assertEquals(cursor, KeysetCursor.decode(cursor.encode()));
+	}
+
+	@Test
+	void roundTripsRatingCursor() {
+		KeysetCursor cursor = KeysetCursor.of(4.25, Instant.parse("2025-03-01T10:15:30Z"), ID);
+
+		KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+		assertEquals(cursor, decoded);
+		assertEquals(4.25, decoded.rating());
+	}
+
+	@Test
+	void encodedTokenIsUrlSafe() {
+		String token = KeysetCursor.of(3.0, Instant.parse("2025-03-01T10:15:30Z"), ID).encode();
+
+		assertEquals(-1, token.indexOf('+'));
+		assertEquals(-1, token.indexOf('/'));
+		assertEquals(-1, token.indexOf('='));
+	}
+
+	@Test
+	void blankTokenMeansFirstPage() {
+		assertNull(KeysetCursor.decode(null));
+		assertNull(KeysetCursor.decode(""));
+		assertNull(KeysetCursor.decode("   "));
+	}
+
+	@Test
+	void rejectsTokenThatIsNotBase64() {
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("not a cursor!"));
+	}
+
+	@Test
+	void rejectsWrongVersion() {
+		assertThrows(IllegalArgumentException.class,
+			() -> KeysetCursor.decode(token("v2||2025-03-01T10:15:30Z|" + ID)));
+	}
+
+	@Test
+	void rejectsWrongNumberOfParts() {
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token("v1|2025-03-01T10:15:30Z|" + ID)));
+		assertThrows(IllegalArgumentException.class,
+			() -> KeysetCursor.decode(token("v1||2025-03-01T10:15:30Z|" + ID + "|extra")));
+	}
+
+	@Test
+	void rejectsMalformedFields() {
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token("v1|high|2025-03-01T10:15:30Z|" + ID)));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token("v1||yesterday|" + ID)));
+		assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(token("v1||2025-03-01T10:15:30Z|not-a-uuid")));
+	}
+
+	private static String token(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}